@@ -0,0 +1,40 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.model.Shipment;
+
+/**
+ * Records of the application modules with a text field padded up to {@code size} bytes of JSON,
+ * {@code size = 64} is close to records in {@code common-dataset}
+ */
+public final class Payloads {
+    public static final String DATASET_SIZE = "64";
+
+    private Payloads() {
+    }
+
+    public static Shipment shipment(int size) {
+        return new Shipment(text("01 Main Streat", size - 40), 1);
+    }
+
+    public static Order order(int size) {
+        return new Order(text("Order01", size - 35), 1);
+    }
+
+    public static Payment payment(int size) {
+        return new Payment(text("Msg 1", size - 30), 100);
+    }
+
+    public static Invoice invoice(int size) {
+        return new Invoice(1, text("Msg 1", size - 25));
+    }
+
+    private static String text(String prefix, int length) {
+        if (length <= prefix.length()) {
+            return prefix;
+        }
+        return prefix + "x".repeat(length - prefix.length());
+    }
+}
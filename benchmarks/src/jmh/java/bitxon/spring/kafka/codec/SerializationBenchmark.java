@@ -0,0 +1,76 @@
+package bitxon.spring.kafka.codec;
+
+import bitxon.spring.kafka.Payloads;
+import bitxon.spring.kafka.model.Shipment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link JsonSerializer} and {@link JsonDeserializer} (used by test readers and writers)
+ * compared with binary form of {@link SchemaRegistry}
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    private static final String TOPIC = "shipment";
+
+    @Param({Payloads.DATASET_SIZE, "1024", "16384", "65536"})
+    int payloadSize;
+
+    private final JsonSerializer<Object> serializer = new JsonSerializer<>();
+    private final JsonDeserializer<Shipment> deserializer = new JsonDeserializer<>(Shipment.class);
+    private final JsonDeserializer<String> stringDeserializer = new JsonDeserializer<>(String.class);
+    private final SchemaRegistry schemaRegistry = new SchemaRegistry(Shipment.class);
+
+    private Shipment shipment;
+    private byte[] data;
+    private ByteBuffer directData;
+    private byte[] binaryData;
+
+    @Setup
+    public void setup() {
+        shipment = Payloads.shipment(payloadSize);
+        data = serializer.serialize(TOPIC, shipment);
+        directData = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        binaryData = schemaRegistry.encode(shipment);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, shipment);
+    }
+
+    @Benchmark
+    public Shipment deserialize() {
+        return deserializer.deserialize(TOPIC, data);
+    }
+
+    @Benchmark
+    public String deserializeString() {
+        return stringDeserializer.deserialize(TOPIC, data);
+    }
+
+    @Benchmark
+    public Shipment deserializeHeapBuffer() {
+        return deserializer.deserialize(TOPIC, null, ByteBuffer.wrap(data));
+    }
+
+    @Benchmark
+    public Shipment deserializeDirectBuffer() {
+        return deserializer.deserialize(TOPIC, null, directData);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return schemaRegistry.encode(shipment);
+    }
+
+    @Benchmark
+    public Object deserializeBinary() {
+        return schemaRegistry.decode(binaryData);
+    }
+}
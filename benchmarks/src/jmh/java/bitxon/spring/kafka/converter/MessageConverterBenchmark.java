@@ -0,0 +1,60 @@
+package bitxon.spring.kafka.converter;
+
+import bitxon.spring.kafka.Payloads;
+import bitxon.spring.kafka.model.Shipment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.ResolvableType;
+import org.springframework.kafka.support.converter.BatchMessagingMessageConverter;
+import org.springframework.kafka.support.converter.JsonMessageConverter;
+import org.springframework.messaging.Message;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion used by batch modules: String value -> {@link Shipment} by {@link JsonMessageConverter},
+ * and a whole poll by {@link BatchMessagingMessageConverter} (see {@code KafkaBatchConfig})
+ */
+@State(Scope.Benchmark)
+public class MessageConverterBenchmark {
+    private static final Type BATCH_TYPE = ResolvableType.forClassWithGenerics(List.class, Shipment.class).getType();
+
+    @Param({Payloads.DATASET_SIZE, "1024", "16384", "65536"})
+    int payloadSize;
+
+    @Param({"10", "500"})
+    int batchSize;
+
+    private final JsonMessageConverter converter = new JsonMessageConverter();
+    private final BatchMessagingMessageConverter batchConverter = new BatchMessagingMessageConverter(converter);
+
+    private ConsumerRecord<String, String> consumerRecord;
+    private List<ConsumerRecord<?, ?>> consumerRecords;
+
+    @Setup
+    public void setup() throws Exception {
+        var json = new ObjectMapper().writeValueAsString(Payloads.shipment(payloadSize));
+        consumerRecord = new ConsumerRecord<>("shipment", 0, 0, "key", json);
+        consumerRecords = new ArrayList<>(batchSize);
+        for (int offset = 0; offset < batchSize; offset++) {
+            consumerRecords.add(new ConsumerRecord<>("shipment", 0, offset, "key", json));
+        }
+    }
+
+    @Benchmark
+    public Message<?> record() {
+        return converter.toMessage(consumerRecord, null, null, Shipment.class);
+    }
+
+    @Benchmark
+    public Message<?> batch() {
+        return batchConverter.toMessage(consumerRecords, null, null, BATCH_TYPE);
+    }
+}
@@ -0,0 +1,106 @@
+package bitxon.spring.kafka.validation;
+
+import bitxon.spring.kafka.Payloads;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.InvoiceValidator;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.model.OrderValidator;
+import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.model.PaymentValidator;
+import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.model.ShipmentValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Set;
+
+/**
+ * Hibernate Validator (the path before {@code validation-processor}) compared with generated {@link RecordValidator}s
+ * as used by {@code KafkaValidationConfig} and {@code ShipmentBatchListener#validate}
+ */
+@State(Scope.Benchmark)
+public class BeanValidationBenchmark {
+    private static final int SIZE = Integer.parseInt(Payloads.DATASET_SIZE);
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private final Shipment shipment = Payloads.shipment(SIZE);
+    private final Shipment invalidShipment = new Shipment(" ", -1);
+    private final Order order = Payloads.order(SIZE);
+    private final Payment payment = Payloads.payment(SIZE);
+    private final Invoice invoice = Payloads.invoice(SIZE);
+
+    private final RecordValidator<Shipment> shipmentValidator = new ShipmentValidator();
+    private final RecordValidator<Order> orderValidator = new OrderValidator();
+    private final RecordValidator<Payment> paymentValidator = new PaymentValidator();
+    private final RecordValidator<Invoice> invoiceValidator = new InvoiceValidator();
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Shipment>> shipment() {
+        return validator.validate(shipment);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Shipment>> shipmentInvalid() {
+        return validator.validate(invalidShipment);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Order>> order() {
+        return validator.validate(order);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Payment>> payment() {
+        return validator.validate(payment);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Invoice>> invoice() {
+        return validator.validate(invoice);
+    }
+
+    @Benchmark
+    public String shipmentGenerated() {
+        return shipmentValidator.describeViolations(shipment);
+    }
+
+    @Benchmark
+    public String shipmentInvalidGenerated() {
+        return shipmentValidator.describeViolations(invalidShipment);
+    }
+
+    @Benchmark
+    public boolean orderGenerated() {
+        return orderValidator.isValid(order);
+    }
+
+    @Benchmark
+    public boolean paymentGenerated() {
+        return paymentValidator.isValid(payment);
+    }
+
+    @Benchmark
+    public boolean invoiceGenerated() {
+        return invoiceValidator.isValid(invoice);
+    }
+}
@@ -0,0 +1,288 @@
+package bitxon.spring.kafka.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of a record, generated from its components:
+ * <pre>
+ * [MAGIC][schema id: int][component 1]...[component N]
+ * </pre>
+ * Components are written in declaration order without names: integers as zig-zag varints, strings as varint length
+ * and UTF-8 bytes, every component is prefixed with a presence byte ({@code 0} - {@code null}).
+ * <p>
+ * Schema id is derived from record name, component names and types, so writer and reader agree on it without
+ * exchanging anything, any change of the record is a new schema.
+ */
+public final class BinaryCodec<T extends Record> {
+    public static final byte MAGIC = 0x0B;
+    static final int HEADER_SIZE = 1 + Integer.BYTES;
+
+    private final Class<T> type;
+    private final String schema;
+    private final int schemaId;
+    private final Field[] fields;
+    private final MethodHandle constructor;
+
+    BinaryCodec(Class<T> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Only records are supported: " + type.getName());
+        }
+        var components = type.getRecordComponents();
+        try {
+            var lookup = MethodHandles.publicLookup();
+            this.fields = new Field[components.length];
+            for (int i = 0; i < components.length; i++) {
+                fields[i] = new Field(FieldType.of(components[i]), lookup.unreflect(components[i].getAccessor()));
+            }
+            var componentTypes = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+            this.constructor = lookup.unreflectConstructor(type.getDeclaredConstructor(componentTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Record must be public: " + type.getName(), e);
+        }
+        this.type = type;
+        this.schema = Arrays.stream(components)
+            .map(component -> component.getName() + ":" + component.getType().getSimpleName())
+            .collect(Collectors.joining(",", type.getSimpleName() + "(", ")"));
+        this.schemaId = schemaId(schema);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public int getSchemaId() {
+        return schemaId;
+    }
+
+    public byte[] encode(T value) {
+        var out = new Output(64);
+        out.writeByte(MAGIC);
+        out.writeInt(schemaId);
+        try {
+            for (var field : fields) {
+                field.type.write(out, field.accessor.invoke(value));
+            }
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't encode " + schema, e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads {@code in} after the {@link #HEADER_SIZE header}, position is moved to the end of the record
+     */
+    T decodeBody(ByteBuffer in) {
+        var values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].type.read(in);
+        }
+        try {
+            return type.cast(constructor.invokeWithArguments(values));
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't decode " + schema, e);
+        }
+    }
+
+    /**
+     * Schema id of the encoded record or {@code null} if {@code data} is not in binary form
+     */
+    static Integer readSchemaId(ByteBuffer data) {
+        if (data.remaining() < HEADER_SIZE || data.get(data.position()) != MAGIC) {
+            return null;
+        }
+        return data.getInt(data.position() + 1);
+    }
+
+    private static int schemaId(String schema) {
+        var crc = new CRC32();
+        crc.update(schema.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    private record Field(FieldType type, MethodHandle accessor) {}
+
+    private enum FieldType {
+        STRING(List.of(String.class)) {
+            @Override
+            void writeValue(Output out, Object value) {
+                var bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeVarLong(bytes.length);
+                out.writeBytes(bytes);
+            }
+
+            @Override
+            Object readValue(ByteBuffer in) {
+                var length = (int) readVarLong(in);
+                if (in.hasArray()) { // decoded in place, no intermediate copy
+                    var value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                    return value;
+                }
+                var bytes = new byte[length];
+                in.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        },
+        INT(List.of(int.class, Integer.class)) {
+            @Override
+            void writeValue(Output out, Object value) {
+                var v = (int) value;
+                out.writeVarLong(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+            }
+
+            @Override
+            Object readValue(ByteBuffer in) {
+                var v = (int) readVarLong(in);
+                return (v >>> 1) ^ -(v & 1);
+            }
+        },
+        LONG(List.of(long.class, Long.class)) {
+            @Override
+            void writeValue(Output out, Object value) {
+                var v = (long) value;
+                out.writeVarLong((v << 1) ^ (v >> 63));
+            }
+
+            @Override
+            Object readValue(ByteBuffer in) {
+                var v = readVarLong(in);
+                return (v >>> 1) ^ -(v & 1);
+            }
+        },
+        BOOLEAN(List.of(boolean.class, Boolean.class)) {
+            @Override
+            void writeValue(Output out, Object value) {
+                out.writeByte((Boolean) value ? 1 : 0);
+            }
+
+            @Override
+            Object readValue(ByteBuffer in) {
+                return in.get() != 0;
+            }
+        },
+        DOUBLE(List.of(double.class, Double.class)) {
+            @Override
+            void writeValue(Output out, Object value) {
+                out.writeLong(Double.doubleToRawLongBits((double) value));
+            }
+
+            @Override
+            Object readValue(ByteBuffer in) {
+                return in.getDouble();
+            }
+        };
+
+        private final List<Class<?>> javaTypes;
+
+        FieldType(List<Class<?>> javaTypes) {
+            this.javaTypes = javaTypes;
+        }
+
+        static FieldType of(RecordComponent component) {
+            for (var fieldType : values()) {
+                if (fieldType.javaTypes.contains(component.getType())) {
+                    return fieldType;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported type of %s.%s: %s".formatted(
+                component.getDeclaringRecord().getSimpleName(), component.getName(), component.getType()));
+        }
+
+        abstract void writeValue(Output out, Object value);
+
+        abstract Object readValue(ByteBuffer in);
+
+        void write(Output out, Object value) {
+            if (value == null) {
+                out.writeByte(0);
+                return;
+            }
+            out.writeByte(1);
+            writeValue(out, value);
+        }
+
+        Object read(ByteBuffer in) {
+            return in.get() == 0 ? null : readValue(in);
+        }
+
+        private static long readVarLong(ByteBuffer in) {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                var b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+
+    /**
+     * Growable byte array, sized for the small records of this project
+     */
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(Long.BYTES);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package bitxon.spring.kafka.codec;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Format of record value, announced by producer in {@link #HEADER} so JSON and binary producers can share a topic.
+ * Records without the header are JSON (written before the header was introduced).
+ */
+public enum ContentFormat {
+    JSON,
+    BINARY;
+
+    public static final String HEADER = "content-format";
+
+    private final byte[] headerValue = name().toLowerCase().getBytes(StandardCharsets.UTF_8);
+
+    public static ContentFormat of(Headers headers) {
+        var header = headers == null ? null : headers.lastHeader(HEADER);
+        if (header == null || header.value() == null) {
+            return JSON;
+        }
+        return parse(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    public static ContentFormat parse(String value) {
+        return value == null || value.isBlank() ? JSON : valueOf(value.trim().toUpperCase());
+    }
+
+    public Header header() {
+        return new RecordHeader(HEADER, headerValue);
+    }
+
+    /**
+     * Replaces format header inherited from a source record (e.g. forwarded to retry topic or DLQ)
+     */
+    public void writeTo(Headers headers) {
+        headers.remove(HEADER);
+        headers.add(header());
+    }
+}
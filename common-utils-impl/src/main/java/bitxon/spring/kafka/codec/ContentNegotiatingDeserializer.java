@@ -0,0 +1,90 @@
+package bitxon.spring.kafka.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reads value in the format announced by {@link ContentFormat#HEADER} header: binary records are decoded by
+ * {@link SchemaRegistry}, everything else (including records without the header) by JSON delegate.
+ * <p>
+ * Can be created by Kafka from properties:
+ * <ul>
+ *     <li>{@value #JSON_DELEGATE_CONFIG} - class of JSON deserializer, it is configured with the same properties</li>
+ *     <li>{@value #BINARY_TYPES_CONFIG} - comma separated record classes expected in binary form,
+ *     {@value #JSON_DEFAULT_TYPE_CONFIG} is registered as well</li>
+ * </ul>
+ */
+public class ContentNegotiatingDeserializer<T> implements Deserializer<T> {
+    public static final String JSON_DELEGATE_CONFIG = "content.format.json.delegate";
+    public static final String BINARY_TYPES_CONFIG = "content.format.binary.types";
+    static final String JSON_DEFAULT_TYPE_CONFIG = "spring.json.value.default.type";
+
+    private Deserializer<T> jsonDelegate;
+    private SchemaRegistry schemaRegistry;
+
+    /**
+     * Used by Kafka, see {@link #configure}
+     */
+    public ContentNegotiatingDeserializer() {
+    }
+
+    public ContentNegotiatingDeserializer(Deserializer<T> jsonDelegate, SchemaRegistry schemaRegistry) {
+        this.jsonDelegate = jsonDelegate;
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (jsonDelegate == null) {
+            jsonDelegate = Delegates.newInstance(configs.get(JSON_DELEGATE_CONFIG), Deserializer.class);
+            schemaRegistry = new SchemaRegistry();
+            for (var key : new String[]{BINARY_TYPES_CONFIG, JSON_DEFAULT_TYPE_CONFIG}) {
+                Delegates.classes(configs.get(key)).stream()
+                    .filter(Class::isRecord)
+                    .forEach(schemaRegistry::register);
+            }
+        }
+        jsonDelegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return jsonDelegate.deserialize(topic, data); // no headers - no negotiation
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (data != null && ContentFormat.of(headers) == ContentFormat.BINARY) {
+            return decode(topic, ByteBuffer.wrap(data));
+        }
+        return jsonDelegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data != null && ContentFormat.of(headers) == ContentFormat.BINARY) {
+            return decode(topic, data);
+        }
+        return jsonDelegate.deserialize(topic, headers, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(String topic, ByteBuffer data) {
+        try {
+            return (T) schemaRegistry.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Can't decode binary data from topic [%s], known schemas %s".formatted(
+                topic, Arrays.toString(schemaRegistry.getCodecs().stream().map(BinaryCodec::getSchema).toArray())), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        jsonDelegate.close();
+    }
+}
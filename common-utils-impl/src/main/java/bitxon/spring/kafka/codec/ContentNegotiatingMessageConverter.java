@@ -0,0 +1,43 @@
+package bitxon.spring.kafka.codec;
+
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.converter.JsonMessageConverter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts records with {@code content-format: binary} header by {@link SchemaRegistry},
+ * everything else (including records without the header) as JSON.
+ * <p>
+ * Record value must be {@code byte[]}, binary data doesn't survive {@code StringDeserializer}.
+ * Conversion is timed as {@code kafka.listener.deserialize}, failures are counted by {@link ListenerMetrics}
+ */
+public class ContentNegotiatingMessageConverter extends JsonMessageConverter {
+    private final SchemaRegistry schemaRegistry = new SchemaRegistry();
+    private final ListenerMetrics listenerMetrics;
+
+    public ContentNegotiatingMessageConverter(ListenerMetrics listenerMetrics) {
+        this.listenerMetrics = listenerMetrics;
+    }
+
+    @Override
+    protected Object extractAndConvertValue(ConsumerRecord<?, ?> record, Type type) {
+        return listenerMetrics.deserialize(record, () -> convertValue(record, type));
+    }
+
+    private Object convertValue(ConsumerRecord<?, ?> record, Type type) {
+        if (record.value() instanceof byte[] data && ContentFormat.of(record.headers()) == ContentFormat.BINARY) {
+            try {
+                if (type instanceof Class<?> klass && klass.isRecord()) {
+                    schemaRegistry.register(klass); // type of the listener parameter is the expected schema
+                }
+                return schemaRegistry.decode(data);
+            } catch (RuntimeException e) {
+                throw new ConversionException("Failed to convert from binary", record, e);
+            }
+        }
+        return super.extractAndConvertValue(record, type);
+    }
+}
@@ -0,0 +1,68 @@
+package bitxon.spring.kafka.codec;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Writes records in configured {@link ContentFormat} and announces it in {@link ContentFormat#HEADER} header.
+ * Values which are not records (raw JSON strings, {@code byte[]}) are always written by JSON delegate.
+ * <p>
+ * Can be created by Kafka from properties:
+ * <ul>
+ *     <li>{@value #FORMAT_CONFIG} - {@code json} (default) or {@code binary}</li>
+ *     <li>{@value #JSON_DELEGATE_CONFIG} - class of JSON serializer, it is configured with the same properties</li>
+ * </ul>
+ */
+public class ContentNegotiatingSerializer<T> implements Serializer<T> {
+    public static final String FORMAT_CONFIG = "content.format";
+    public static final String JSON_DELEGATE_CONFIG = "content.format.json.delegate";
+
+    private ContentFormat format;
+    private Serializer<T> jsonDelegate;
+    private final SchemaRegistry schemaRegistry = new SchemaRegistry();
+
+    /**
+     * Used by Kafka, see {@link #configure}
+     */
+    public ContentNegotiatingSerializer() {
+    }
+
+    public ContentNegotiatingSerializer(ContentFormat format, Serializer<T> jsonDelegate) {
+        this.format = format;
+        this.jsonDelegate = jsonDelegate;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (jsonDelegate == null) {
+            format = ContentFormat.parse((String) configs.get(FORMAT_CONFIG));
+            jsonDelegate = Delegates.newInstance(configs.get(JSON_DELEGATE_CONFIG), Serializer.class);
+        }
+        jsonDelegate.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return jsonDelegate.serialize(topic, data); // no headers - no negotiation
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        if (data == null) {
+            return null;
+        }
+        if (format == ContentFormat.BINARY && data instanceof Record record) {
+            ContentFormat.BINARY.writeTo(headers);
+            return schemaRegistry.encode(record);
+        }
+        ContentFormat.JSON.writeTo(headers);
+        return jsonDelegate.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDelegate.close();
+    }
+}
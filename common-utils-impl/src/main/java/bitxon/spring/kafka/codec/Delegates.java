@@ -0,0 +1,51 @@
+package bitxon.spring.kafka.codec;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolves delegates and types given in Kafka properties either as {@link Class} or as class name
+ */
+final class Delegates {
+
+    private Delegates() {
+    }
+
+    static <T> T newInstance(Object classOrName, Class<T> expected) {
+        if (classOrName == null) {
+            throw new IllegalArgumentException("JSON delegate is not configured");
+        }
+        try {
+            return expected.cast(toClass(classOrName).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Can't create delegate " + classOrName, e);
+        }
+    }
+
+    static List<Class<?>> classes(Object classesOrNames) {
+        if (classesOrNames == null) {
+            return List.of();
+        }
+        if (classesOrNames instanceof Class<?> type) {
+            return List.of(type);
+        }
+        return Arrays.stream(classesOrNames.toString().split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .<Class<?>>map(Delegates::toClass)
+            .toList();
+    }
+
+    private static Class<?> toClass(Object classOrName) {
+        if (classOrName instanceof Class<?> type) {
+            return type;
+        }
+        try {
+            var classLoader = Thread.currentThread().getContextClassLoader();
+            return Class.forName(classOrName.toString(), true,
+                classLoader != null ? classLoader : Delegates.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Class not found: " + classOrName, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bitxon.spring.kafka.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads JSON into {@code klass} with Jackson, {@code String} gets the raw text
+ */
+public class JsonDeserializer<T> implements Deserializer<T> {
+    private static final int ERROR_PREVIEW_BYTES = 256;
+
+    private final Class<T> klass;
+    private final ObjectReader jsonReader;
+
+    public JsonDeserializer(Class<T> klass) {
+        this.klass = klass;
+        ObjectMapper jsonMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+        this.jsonReader = jsonMapper.readerFor(klass); // immutable and reusable, type is resolved once
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return deserialize(topic, data, 0, data.length);
+    }
+
+    /**
+     * Reads straight from the record buffer, {@code data} position is left untouched
+     */
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.hasArray()) {
+            return deserialize(topic, data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+
+        var buffer = data.duplicate();
+        if (String.class.isAssignableFrom(klass)) {
+            return (T) StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+        try {
+            return jsonReader.readValue(new ByteBufferBackedInputStream(buffer));
+        } catch (IOException exception) {
+            throw deserializationFailed(topic, data, exception);
+        }
+    }
+
+    private T deserialize(String topic, byte[] data, int offset, int length) {
+        if (String.class.isAssignableFrom(klass)) {
+            return (T) new String(data, offset, length, StandardCharsets.UTF_8); // we don't need jsonMapper to convert byte[] to String
+        }
+        try {
+            return jsonReader.readValue(data, offset, length);
+        } catch (IOException exception) {
+            throw deserializationFailed(topic, ByteBuffer.wrap(data, offset, length), exception);
+        }
+    }
+
+    private static SerializationException deserializationFailed(String topic, ByteBuffer data, Exception exception) {
+        var preview = data.duplicate();
+        var total = preview.remaining();
+        if (total > ERROR_PREVIEW_BYTES) {
+            preview.limit(preview.position() + ERROR_PREVIEW_BYTES);
+        }
+        return new SerializationException(
+            "Can't deserialize data [%s%s] (%d bytes) from topic [%s]".formatted(
+                StandardCharsets.UTF_8.decode(preview), total > ERROR_PREVIEW_BYTES ? "..." : "", total, topic),
+            exception);
+    }
+}
@@ -1,4 +1,4 @@
-package bitxon.spring.kafka.utils;
+package bitxon.spring.kafka.codec;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -7,7 +7,12 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Serializer;
 
-class JsonSerializer<T> implements Serializer<T> {
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes values as JSON with Jackson, {@code String} is assumed to be JSON already and written as is
+ */
+public class JsonSerializer<T> implements Serializer<T> {
     private final ObjectMapper jsonMapper;
 
     public JsonSerializer() {
@@ -23,7 +28,7 @@ class JsonSerializer<T> implements Serializer<T> {
             return null;
         }
         if (data instanceof String string) { // assume String is already a Json
-            return string.getBytes();
+            return string.getBytes(StandardCharsets.UTF_8);
         }
         try {
             return jsonMapper.writeValueAsBytes(data);
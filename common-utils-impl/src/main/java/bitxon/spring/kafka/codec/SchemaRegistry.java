@@ -0,0 +1,74 @@
+package bitxon.spring.kafka.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for a schema registry: keeps {@link BinaryCodec codecs} of known records by type and schema id.
+ * <p>
+ * Schema ids are derived from the schema itself, so independent registries of producer and consumer resolve the same
+ * id without a shared service. Consumer must register (or be configured with) the types it expects to read.
+ */
+public class SchemaRegistry {
+    private final ConcurrentHashMap<Class<?>, BinaryCodec<?>> byType = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, BinaryCodec<?>> byId = new ConcurrentHashMap<>();
+
+    public SchemaRegistry(Class<?>... types) {
+        for (var type : types) {
+            register(type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> BinaryCodec<?> register(Class<T> type) {
+        return byType.computeIfAbsent(type, __ -> {
+            var codec = new BinaryCodec<>((Class<? extends Record>) type.asSubclass(Record.class));
+            var existing = byId.putIfAbsent(codec.getSchemaId(), codec);
+            if (existing != null && existing.getType() != type) {
+                throw new IllegalStateException("Schema id %d of %s is already taken by %s".formatted(
+                    codec.getSchemaId(), codec.getSchema(), existing.getSchema()));
+            }
+            return codec;
+        });
+    }
+
+    public Collection<BinaryCodec<?>> getCodecs() {
+        return byType.values();
+    }
+
+    /**
+     * @return true if {@code data} starts with binary header of a registered schema
+     */
+    public boolean canDecode(ByteBuffer data) {
+        var schemaId = BinaryCodec.readSchemaId(data);
+        return schemaId != null && byId.containsKey(schemaId);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Record> byte[] encode(T value) {
+        var codec = (BinaryCodec<T>) register(value.getClass());
+        return codec.encode(value);
+    }
+
+    public Object decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * {@code data} position is left untouched
+     */
+    public Object decode(ByteBuffer data) {
+        var schemaId = BinaryCodec.readSchemaId(data);
+        if (schemaId == null) {
+            throw new IllegalArgumentException("Data is not in binary form");
+        }
+        var codec = byId.get(schemaId);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown schema id: " + schemaId);
+        }
+        var in = data.duplicate();
+        in.position(in.position() + BinaryCodec.HEADER_SIZE);
+        return codec.decodeBody(in);
+    }
+}
@@ -0,0 +1,86 @@
+package bitxon.spring.kafka.codec;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times {@value #DELEGATE_CONFIG} deserializer as {@code kafka.consumer.deserialize} (tagged by {@code topic}),
+ * failures are counted as {@code kafka.consumer.deserialize.failures}.
+ * <p>
+ * Kafka creates deserializers on its own, so meters are registered in {@link Metrics#globalRegistry}
+ * (Spring Boot adds its registries there), the delegate is configured with the same properties.
+ * Deserialization runs in {@code poll()}, before the record is known to a listener, so there is no listener tag.
+ */
+public class TimedDeserializer<T> implements Deserializer<T> {
+    public static final String DELEGATE_CONFIG = "timed.delegate";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private Deserializer<T> delegate;
+
+    /**
+     * Used by Kafka, see {@link #configure}
+     */
+    public TimedDeserializer() {
+        this.registry = Metrics.globalRegistry;
+    }
+
+    public TimedDeserializer(Deserializer<T> delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (delegate == null) {
+            delegate = Delegates.newInstance(configs.get(DELEGATE_CONFIG), Deserializer.class);
+        }
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return timed(topic, () -> delegate.deserialize(topic, data));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        return timed(topic, () -> delegate.deserialize(topic, headers, data));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        return timed(topic, () -> delegate.deserialize(topic, headers, data));
+    }
+
+    private T timed(String topic, Supplier<T> deserialization) {
+        var start = System.nanoTime();
+        try {
+            return deserialization.get();
+        } catch (RuntimeException e) {
+            registry.counter("kafka.consumer.deserialize.failures", "topic", topic).increment();
+            throw e;
+        } finally {
+            timers.computeIfAbsent(topic, __ -> Timer.builder("kafka.consumer.deserialize")
+                .description("Deserialization of a record value")
+                .tag("topic", topic)
+                .register(registry)
+            ).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,45 @@
+package bitxon.spring.kafka.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over {@code long} hashes, bit positions are derived from the hash itself (double hashing),
+ * sized for ~1% false positives at {@code capacity} entries
+ */
+final class BloomFilter {
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final long[] words;
+    private final long bits;
+
+    BloomFilter(int capacity) {
+        this.words = new long[(int) Math.max(1, ((long) capacity * BITS_PER_ENTRY + 63) / 64)];
+        this.bits = (long) words.length * 64;
+    }
+
+    boolean mightContain(long hash) {
+        var h1 = hash;
+        var h2 = Hashing.mix(hash);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            var bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long hash) {
+        var h1 = hash;
+        var h2 = Hashing.mix(hash);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            var bit = Math.floorMod(h1 + i * h2, bits);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(words, 0);
+    }
+}
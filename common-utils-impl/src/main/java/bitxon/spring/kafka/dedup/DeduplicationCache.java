@@ -0,0 +1,164 @@
+package bitxon.spring.kafka.dedup;
+
+import bitxon.spring.kafka.store.SegmentedJournal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers {@code long} hashes of processed records for at least {@code window / 2} and at most {@code window}:
+ * hashes go to the current generation, which replaces the previous one every {@code window / 2}
+ * (or earlier if it holds {@code capacity} hashes), lookups check both generations.
+ * <p>
+ * Memory is bounded by two {@link LongHashSet sets} of {@code capacity}, {@code bloom} adds a Bloom filter
+ * per generation that answers most lookups of new hashes without probing the sets.
+ * <p>
+ * With {@code directory} every hash is also appended to a {@link SegmentedJournal}, hashes within the window
+ * are loaded back on start, so redeliveries after restart are recognized as well.
+ */
+public class DeduplicationCache implements AutoCloseable {
+    private static final int SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final int MARK_BYTES = 32; // upper bound of encoded Mark with its frame
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Generation[] generations;
+    private final SegmentedJournal<Mark> journal;
+    private int current;
+    private long currentStartMillis;
+
+    public DeduplicationCache(Duration window, int capacity, boolean bloom, Path directory) {
+        this(window, capacity, bloom, directory, System::currentTimeMillis);
+    }
+
+    DeduplicationCache(Duration window, int capacity, boolean bloom, Path directory, LongSupplier clock) {
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.generations = new Generation[]{new Generation(capacity, bloom), new Generation(capacity, bloom)};
+        this.currentStartMillis = clock.getAsLong();
+        if (directory == null) {
+            this.journal = null;
+        } else {
+            var segments = (int) Math.min(Integer.MAX_VALUE, 2L * capacity * MARK_BYTES / SEGMENT_BYTES + 2);
+            this.journal = new SegmentedJournal<>(Mark.class, directory, SEGMENT_BYTES, segments, Duration.ofSeconds(1));
+            restore();
+        }
+    }
+
+    private void restore() {
+        var oldest = clock.getAsLong() - windowMillis;
+        var offset = journal.getStartOffset();
+        while (offset < journal.getEndOffset()) {
+            List<Mark> marks = journal.read(offset, 10_000);
+            for (var mark : marks) {
+                if (mark.timestampMillis() >= oldest) {
+                    add(mark.hash());
+                }
+            }
+            offset += marks.size();
+        }
+    }
+
+    public boolean contains(long hash) {
+        lock.lock();
+        try {
+            rotateIfExpired();
+            return generations[current].contains(hash) || generations[1 - current].contains(hash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(long hash) {
+        lock.lock();
+        try {
+            rotateIfExpired();
+            add(hash);
+            if (journal != null) {
+                journal.add(new Mark(hash, clock.getAsLong()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(long hash) {
+        if (!generations[current].add(hash)) { // full
+            rotate(clock.getAsLong());
+            generations[current].add(hash);
+        }
+    }
+
+    private void rotateIfExpired() {
+        var now = clock.getAsLong();
+        var age = now - currentStartMillis;
+        if (age >= windowMillis) { // idle for at least window / 2, everything is older than that
+            generations[current].clear();
+            rotate(now);
+        } else if (age >= windowMillis / 2) {
+            rotate(now);
+        }
+    }
+
+    private void rotate(long now) {
+        current = 1 - current;
+        generations[current].clear();
+        currentStartMillis = now;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return generations[0].hashes.size() + generations[1].hashes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public record Mark(long hash, long timestampMillis) {}
+
+    private static final class Generation {
+        private final LongHashSet hashes;
+        private final BloomFilter bloom;
+
+        private Generation(int capacity, boolean bloom) {
+            this.hashes = new LongHashSet(capacity);
+            this.bloom = bloom ? new BloomFilter(capacity) : null;
+        }
+
+        boolean contains(long hash) {
+            if (bloom != null && !bloom.mightContain(hash)) {
+                return false;
+            }
+            return hashes.contains(hash);
+        }
+
+        boolean add(long hash) {
+            if (!hashes.add(hash)) {
+                return false;
+            }
+            if (bloom != null) {
+                bloom.put(hash);
+            }
+            return true;
+        }
+
+        void clear() {
+            hashes.clear();
+            if (bloom != null) {
+                bloom.clear();
+            }
+        }
+    }
+}
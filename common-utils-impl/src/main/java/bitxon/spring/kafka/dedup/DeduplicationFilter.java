@@ -0,0 +1,165 @@
+package bitxon.spring.kafka.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops records that were already processed, used as {@code @KafkaListener(filter = "...")}.
+ * <p>
+ * Records are remembered by {@link #interceptor()} only after the listener succeeded, so records that failed
+ * (and are re-seeked or sent to retry topics) are not filtered. A listener that hands records over to workers
+ * calls {@link #markProcessed} itself instead. Identity of a record depends on {@link KeyStrategy}.
+ * <p>
+ * Exports {@code dedup.records} counter (tagged {@code result=duplicate|unique}), {@code dedup.hit.ratio}
+ * and {@code dedup.cache.size} gauges
+ */
+public class DeduplicationFilter<K, V> implements RecordFilterStrategy<K, V>, MeterBinder {
+    private static final long NO_IDENTITY = 0;
+
+    private final String name;
+    private final KeyStrategy keyStrategy;
+    private final DeduplicationCache cache;
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private volatile Counter duplicatesCounter;
+    private volatile Counter uniquesCounter;
+
+    public DeduplicationFilter(String name, KeyStrategy keyStrategy, DeduplicationCache cache) {
+        this.name = name;
+        this.keyStrategy = keyStrategy;
+        this.cache = cache;
+    }
+
+    /**
+     * @return true if record must be dropped
+     */
+    @Override
+    public boolean filter(ConsumerRecord<K, V> rec) {
+        var hash = keyStrategy.hash(rec);
+        if (hash == NO_IDENTITY) {
+            return false;
+        }
+        var duplicate = cache.contains(hash);
+        checks.increment();
+        if (duplicate) {
+            hits.increment();
+        }
+        var counter = duplicate ? duplicatesCounter : uniquesCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * Remembers records processed without exception, must be registered on the same containers as the filter
+     */
+    public RecordInterceptor<K, V> interceptor() {
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> rec, Consumer<K, V> consumer) {
+                return rec;
+            }
+
+            @Override
+            public void success(ConsumerRecord<K, V> rec, Consumer<K, V> consumer) {
+                markProcessed(rec);
+            }
+        };
+    }
+
+    /**
+     * Remembers a record processed off the consumer thread, its listener returns before it is processed
+     */
+    public void markProcessed(ConsumerRecord<?, ?> rec) {
+        var hash = keyStrategy.hash(rec);
+        if (hash != NO_IDENTITY) {
+            cache.put(hash);
+        }
+    }
+
+    public double getHitRatio() {
+        var total = checks.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        duplicatesCounter = Counter.builder("dedup.records")
+            .description("Records checked for duplicates")
+            .tag("filter", name)
+            .tag("result", "duplicate")
+            .register(registry);
+        uniquesCounter = Counter.builder("dedup.records")
+            .description("Records checked for duplicates")
+            .tag("filter", name)
+            .tag("result", "unique")
+            .register(registry);
+        Gauge.builder("dedup.hit.ratio", this, DeduplicationFilter::getHitRatio)
+            .description("Share of checked records that were dropped as duplicates")
+            .tag("filter", name)
+            .register(registry);
+        Gauge.builder("dedup.cache.size", cache, DeduplicationCache::size)
+            .description("Hashes of processed records in the cache")
+            .tag("filter", name)
+            .register(registry);
+    }
+
+    public enum KeyStrategy {
+        /**
+         * Same topic, partition and offset - redelivery after rebalance or re-seek
+         */
+        OFFSET {
+            @Override
+            long hash(ConsumerRecord<?, ?> rec) {
+                return Hashing.combine(Hashing.combine(Hashing.hash(rec.topic()), rec.partition()), rec.offset());
+            }
+        },
+        /**
+         * Same topic and record key, records without key are never duplicates
+         */
+        KEY {
+            @Override
+            long hash(ConsumerRecord<?, ?> rec) {
+                return rec.key() == null ? NO_IDENTITY : Hashing.combine(Hashing.hash(rec.topic()), Hashing.hash(rec.key()));
+            }
+        },
+        /**
+         * Same topic, record key and value - also catches messages that were produced twice
+         */
+        CONTENT {
+            @Override
+            long hash(ConsumerRecord<?, ?> rec) {
+                if (rec.value() == null) {
+                    return NO_IDENTITY; // tombstone or value that failed to deserialize
+                }
+                var key = Hashing.combine(Hashing.hash(rec.topic()), Hashing.hash(rec.key()));
+                return Hashing.combine(key, Hashing.hash(rec.value()));
+            }
+        },
+        /**
+         * Deduplication is off
+         */
+        NONE {
+            @Override
+            long hash(ConsumerRecord<?, ?> rec) {
+                return NO_IDENTITY;
+            }
+        };
+
+        abstract long hash(ConsumerRecord<?, ?> rec);
+
+        public static KeyStrategy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
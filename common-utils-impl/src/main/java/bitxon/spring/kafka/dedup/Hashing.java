@@ -0,0 +1,65 @@
+package bitxon.spring.kafka.dedup;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit hashes of record identity, 32-bit {@code hashCode()} collides too often for a cache of millions of records
+ */
+public final class Hashing {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private Hashing() {
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads bits of {@code value} over the whole hash
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    public static long hash(CharSequence value) {
+        var hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    public static long hash(byte[] value) {
+        var hash = FNV_OFFSET;
+        for (var b : value) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hash of {@code value} by its type: strings and byte arrays by content, other values by {@code toString()}
+     */
+    public static long hash(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence chars) {
+            return hash(chars);
+        }
+        if (value instanceof byte[] bytes) {
+            return hash(bytes);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix(((Number) value).longValue());
+        }
+        if (value.getClass().isArray()) {
+            return hash(Arrays.deepToString(new Object[]{value}));
+        }
+        return hash(value.toString()); // records print all components
+    }
+
+    public static long combine(long first, long second) {
+        return mix(first * 31 + second);
+    }
+}
@@ -0,0 +1,80 @@
+package bitxon.spring.kafka.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing set of {@code long} hashes (linear probing), no boxing and no allocation after construction
+ */
+final class LongHashSet {
+    private static final long EMPTY = 0;
+    private static final long ZERO_REPLACEMENT = 0x9E3779B97F4A7C15L; // stored instead of 0, which marks empty slot
+
+    private final long[] table;
+    private final int mask;
+    private final int capacity;
+    private int size;
+
+    /**
+     * @param capacity max number of hashes, table is kept at most half full
+     */
+    LongHashSet(int capacity) {
+        this.capacity = capacity;
+        this.table = new long[Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1];
+        this.mask = table.length - 1;
+    }
+
+    boolean contains(long hash) {
+        var key = key(hash);
+        for (var index = slot(key); ; index = (index + 1) & mask) {
+            var existing = table[index];
+            if (existing == key) {
+                return true;
+            }
+            if (existing == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return false if set is full and {@code hash} is not in it
+     */
+    boolean add(long hash) {
+        var key = key(hash);
+        for (var index = slot(key); ; index = (index + 1) & mask) {
+            var existing = table[index];
+            if (existing == key) {
+                return true;
+            }
+            if (existing == EMPTY) {
+                if (size == capacity) {
+                    return false;
+                }
+                table[index] = key;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static long key(long hash) {
+        return hash == EMPTY ? ZERO_REPLACEMENT : hash;
+    }
+}
@@ -0,0 +1,152 @@
+package bitxon.spring.kafka.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INFO line per record or batch of a listener, limited to {@code maxLinesPerSecond} (bursts up to one second of lines),
+ * lines over the limit are dropped before anything is formatted and counted as {@code log.lines.suppressed}.
+ * <ul>
+ *     <li>{@code summary} - topic, partition and offset (range and count for a batch), payload is never rendered</li>
+ *     <li>{@code full} - the same with payload, for debugging</li>
+ *     <li>{@code off} - nothing is logged</li>
+ * </ul>
+ * Next logged line reports how many lines were suppressed before it.
+ */
+public class HotPathLog<T> implements MeterBinder {
+    private final String name;
+    private final Logger log;
+    private final Mode mode;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextLineNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressedSinceLastLine = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+    private volatile Counter suppressedCounter;
+
+    /**
+     * @param maxLinesPerSecond {@code 0} - no limit
+     */
+    public HotPathLog(String name, Logger log, Mode mode, int maxLinesPerSecond) {
+        this.name = name;
+        this.log = log;
+        this.mode = mode;
+        this.intervalNanos = maxLinesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxLinesPerSecond : 0;
+        this.burstNanos = TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        suppressedCounter = Counter.builder("log.lines.suppressed")
+            .description("Hot path log lines dropped by rate limit")
+            .tag("log", name)
+            .baseUnit("lines")
+            .register(registry);
+    }
+
+    public void record(String topic, int partition, long offset, T payload) {
+        if (!isLogged()) {
+            return;
+        }
+        var skipped = suppressedSinceLastLine.getAndSet(0);
+        if (mode == Mode.FULL) {
+            log.info("{} {}-{}@{}{}: {}", name, topic, partition, offset, suffix(skipped), payload);
+        } else {
+            log.info("{} {}-{}@{}{}", name, topic, partition, offset, suffix(skipped));
+        }
+    }
+
+    /**
+     * Header lists of a batch listener ({@code RECEIVED_TOPIC}, {@code RECEIVED_PARTITION}, {@code OFFSET}),
+     * offsets are rendered as ranges per partition
+     */
+    public void batch(List<String> topics, List<Integer> partitions, List<Long> offsets, List<T> payloads) {
+        if (!isLogged()) {
+            return;
+        }
+        var skipped = suppressedSinceLastLine.getAndSet(0);
+        var ranges = new OffsetRanges(topics, partitions, offsets);
+        if (mode == Mode.FULL) {
+            log.info("{} batch of {} [{}]{}: {}", name, offsets.size(), ranges, suffix(skipped), payloads);
+        } else {
+            log.info("{} batch of {} [{}]{}", name, offsets.size(), ranges, suffix(skipped));
+        }
+    }
+
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private boolean isLogged() {
+        if (mode == Mode.OFF || !log.isInfoEnabled()) {
+            return false;
+        }
+        if (intervalNanos == 0 || tryAcquire()) {
+            return true;
+        }
+        suppressed.increment();
+        suppressedSinceLastLine.incrementAndGet();
+        var counter = suppressedCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        return false;
+    }
+
+    /**
+     * Generic cell rate algorithm: every line moves the schedule by one interval,
+     * line is allowed while the schedule is no more than a burst ahead of now
+     */
+    private boolean tryAcquire() {
+        while (true) {
+            var now = System.nanoTime();
+            var next = nextLineNanos.get();
+            var scheduled = Math.max(next, now) + intervalNanos;
+            if (scheduled - now > burstNanos) {
+                return false;
+            }
+            if (nextLineNanos.compareAndSet(next, scheduled)) {
+                return true;
+            }
+        }
+    }
+
+    private static String suffix(long skipped) {
+        return skipped == 0 ? "" : " (" + skipped + " lines suppressed)";
+    }
+
+    public enum Mode {
+        SUMMARY, FULL, OFF
+    }
+
+    /**
+     * Rendered only when the line is written, records of one partition are adjacent in a batch
+     */
+    private record OffsetRanges(List<String> topics, List<Integer> partitions, List<Long> offsets) {
+
+        @Override
+        public String toString() {
+            var out = new StringBuilder();
+            var start = 0;
+            for (int i = 1; i <= offsets.size(); i++) {
+                if (i == offsets.size() || !partitions.get(i).equals(partitions.get(start))
+                    || !topics.get(i).equals(topics.get(start))) {
+                    if (!out.isEmpty()) {
+                        out.append(", ");
+                    }
+                    out.append(topics.get(start)).append('-').append(partitions.get(start))
+                        .append('@').append(offsets.get(start)).append("..").append(offsets.get(i - 1));
+                    start = i;
+                }
+            }
+            return out.toString();
+        }
+    }
+}
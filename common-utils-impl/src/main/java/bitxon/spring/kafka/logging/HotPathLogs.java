@@ -0,0 +1,27 @@
+package bitxon.spring.kafka.logging;
+
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Creates {@link HotPathLog logs} of one mode for all listeners of the application,
+ * log of a listener is named {@code bitxon.spring.kafka.logging.HotPathLog.<name>}
+ */
+public class HotPathLogs {
+    private final HotPathLog.Mode mode;
+    private final int maxLinesPerSecond;
+
+    public HotPathLogs(String mode, int maxLinesPerSecond) {
+        this.mode = HotPathLog.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxLinesPerSecond = maxLinesPerSecond;
+    }
+
+    /**
+     * @param payloadType type of logged payloads, only used for type inference
+     */
+    public <T> HotPathLog<T> create(String name, Class<T> payloadType) {
+        var log = LoggerFactory.getLogger(HotPathLog.class.getName() + "." + name);
+        return new HotPathLog<>(name, log, mode, maxLinesPerSecond);
+    }
+}
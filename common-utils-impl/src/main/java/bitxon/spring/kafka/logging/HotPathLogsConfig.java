@@ -0,0 +1,22 @@
+package bitxon.spring.kafka.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Shared by all modules with {@code @Import}, they define a {@link HotPathLog} per listener with {@link HotPathLogs#create}
+ */
+@Configuration
+public class HotPathLogsConfig {
+
+    /**
+     * {@code mode: summary} logs topic, partition and offsets of handled records, {@code full} adds payloads,
+     * both are limited to {@code max-lines-per-second} per listener (see {@code log.lines.suppressed} metric)
+     */
+    @Bean
+    public HotPathLogs hotPathLogs(@Value("${custom.logging.mode:summary}") String mode,
+                                   @Value("${custom.logging.max-lines-per-second:10}") int maxLinesPerSecond) {
+        return new HotPathLogs(mode, maxLinesPerSecond);
+    }
+}
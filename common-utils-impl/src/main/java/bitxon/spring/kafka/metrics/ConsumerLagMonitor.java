@@ -0,0 +1,352 @@
+package bitxon.spring.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsSpec;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lag of consumer groups per partition, polled every {@code pollInterval} with three admin requests in flight at once:
+ * {@code listOffsets} for earliest and latest offsets and one {@code listConsumerGroupOffsets} for all groups.
+ * Partitions of the topics are described once per {@code metadataTtl} (or when a topic is changed).
+ * <p>
+ * Lag is counted from the committed offset, or from the earliest offset if nothing is committed or the committed offset
+ * is already deleted by retention. Time lag is estimated from the history of latest offsets: how long ago the log end
+ * was at the committed offset, no records are fetched.
+ * <p>
+ * Exported as {@code kafka.consumer.lag} and {@code kafka.consumer.lag.seconds} gauges
+ * (tagged by {@code group}, {@code topic} and {@code partition}) and {@code kafka.consumer.lag.polls} counter.
+ */
+public class ConsumerLagMonitor implements MeterBinder, SmartLifecycle, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConsumerLagMonitor.class);
+    private static final int HISTORY_SIZE = 64;
+
+    private final Admin admin;
+    private final Map<String, Set<String>> topicsByGroup;
+    private final Set<String> topics;
+    private final Duration pollInterval;
+    private final Duration metadataTtl;
+    private final Duration timeout;
+    private final Map<String, Map<TopicPartition, Holder>> lags = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, OffsetHistory> history = new HashMap<>(); // poller thread only
+    private Map<String, List<TopicPartition>> partitions = Map.of();
+    private long metadataExpiresAtMillis;
+    private volatile long polledAtMillis;
+    private volatile MeterRegistry registry;
+    private volatile Counter successfulPolls;
+    private volatile Counter failedPolls;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param topicsByGroup consumer group - topics it consumes
+     * @param timeout       of every admin request, must be shorter than {@code pollInterval}
+     */
+    public ConsumerLagMonitor(Admin admin, Map<String, ? extends Collection<String>> topicsByGroup,
+                              Duration pollInterval, Duration metadataTtl, Duration timeout) {
+        this.admin = admin;
+        this.topicsByGroup = topicsByGroup.entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> Set.copyOf(e.getValue())));
+        this.topics = this.topicsByGroup.values().stream()
+            .flatMap(Set::stream)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.pollInterval = pollInterval;
+        this.metadataTtl = metadataTtl;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        successfulPolls = Counter.builder("kafka.consumer.lag.polls")
+            .description("Lag polls, every poll is one round of admin requests")
+            .tag("result", "success")
+            .register(registry);
+        failedPolls = Counter.builder("kafka.consumer.lag.polls")
+            .description("Lag polls, every poll is one round of admin requests")
+            .tag("result", "failure")
+            .register(registry);
+        this.registry = registry;
+        lags.forEach((group, partitionLags) -> partitionLags.forEach((partition, holder) ->
+            registerGauges(registry, group, partition, holder)));
+    }
+
+    /**
+     * @return lag of all partitions of {@code topic}, {@code 0} until the first successful poll
+     */
+    public long getLag(String group, String topic) {
+        return getLags(group).stream()
+            .filter(lag -> lag.partition().topic().equals(topic))
+            .mapToLong(Lag::lag)
+            .sum();
+    }
+
+    /**
+     * @return the highest time lag among partitions of {@code topic}
+     */
+    public Duration getTimeLag(String group, String topic) {
+        var seconds = getLags(group).stream()
+            .filter(lag -> lag.partition().topic().equals(topic))
+            .mapToDouble(Lag::timeLagSeconds)
+            .max()
+            .orElse(0);
+        return Duration.ofMillis((long) (seconds * 1000));
+    }
+
+    /**
+     * @return start of the last successful poll, all lags are from it; {@code 0} until the first one
+     */
+    public long getPolledAtMillis() {
+        return polledAtMillis;
+    }
+
+    public List<Lag> getLags(String group) {
+        var partitionLags = lags.get(group);
+        if (partitionLags == null) {
+            return List.of();
+        }
+        var result = new ArrayList<Lag>(partitionLags.size());
+        partitionLags.values().forEach(holder -> result.add(holder.lag));
+        return result;
+    }
+
+    /**
+     * One round of admin requests, called by the scheduler or directly (e.g. in tests)
+     */
+    public synchronized void poll() {
+        var now = System.currentTimeMillis();
+        try {
+            var groupPartitions = partitions(now);
+            var all = groupPartitions.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (all.isEmpty()) {
+                return;
+            }
+
+            // all requests are sent before waiting for any of them
+            var latestRequest = admin.listOffsets(specs(all, __ -> OffsetSpec.latest())).all();
+            var earliestRequest = admin.listOffsets(specs(all, __ -> OffsetSpec.earliest())).all();
+            var committedRequest = admin.listConsumerGroupOffsets(groupPartitions.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                    e -> new ListConsumerGroupOffsetsSpec().topicPartitions(e.getValue()))));
+
+            var latest = await(latestRequest);
+            var earliest = await(earliestRequest);
+            latest.forEach((partition, info) ->
+                history.computeIfAbsent(partition, __ -> new OffsetHistory()).add(now, info.offset()));
+
+            for (var entry : groupPartitions.entrySet()) {
+                var group = entry.getKey();
+                var committed = await(committedRequest.partitionsToOffsetAndMetadata(group));
+                for (var partition : entry.getValue()) {
+                    update(group, partition, latest.get(partition), earliest.get(partition), committed.get(partition), now);
+                }
+            }
+            polledAtMillis = now;
+            increment(successfulPolls);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                metadataExpiresAtMillis = 0; // partitions are described again on the next poll
+            }
+            increment(failedPolls);
+            log.warn("Lag poll failed: {}", e.getCause().toString());
+        } catch (TimeoutException e) {
+            increment(failedPolls);
+            log.warn("Lag poll timed out after {}", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            increment(failedPolls); // keeps the scheduled polls going
+            log.warn("Lag poll failed", e);
+        }
+    }
+
+    private Map<String, List<TopicPartition>> partitions(long now)
+        throws ExecutionException, InterruptedException, TimeoutException {
+        if (now < metadataExpiresAtMillis) {
+            return partitions;
+        }
+        Map<String, TopicDescription> descriptions = await(admin.describeTopics(topics).allTopicNames());
+        var result = new HashMap<String, List<TopicPartition>>();
+        topicsByGroup.forEach((group, groupTopics) -> result.put(group, groupTopics.stream()
+            .map(descriptions::get)
+            .flatMap(description -> description.partitions().stream()
+                .map(info -> new TopicPartition(description.name(), info.partition())))
+            .toList()));
+        partitions = result;
+        metadataExpiresAtMillis = now + metadataTtl.toMillis();
+        return partitions;
+    }
+
+    private void update(String group, TopicPartition partition, ListOffsetsResultInfo latest,
+                        ListOffsetsResultInfo earliest, OffsetAndMetadata committed, long now) {
+        if (latest == null || earliest == null) {
+            return;
+        }
+        // nothing committed yet or committed records are deleted - consumer starts from the earliest retained record
+        var position = committed == null ? earliest.offset() : Math.max(committed.offset(), earliest.offset());
+        var lag = Math.max(0, latest.offset() - position);
+        var timeLag = lag == 0 ? 0 : history.get(partition).secondsSince(position, now);
+        var current = new Lag(partition, latest.offset(), lag, timeLag);
+
+        lags.computeIfAbsent(group, __ -> new ConcurrentHashMap<>())
+            .computeIfAbsent(partition, __ -> {
+                var created = new Holder(current);
+                var registry = this.registry;
+                if (registry != null) {
+                    registerGauges(registry, group, partition, created);
+                }
+                return created;
+            })
+            .lag = current;
+    }
+
+    private static void registerGauges(MeterRegistry registry, String group, TopicPartition partition, Holder holder) {
+        Gauge.builder("kafka.consumer.lag", holder, current -> current.lag.lag())
+            .description("Records behind the latest offset")
+            .tag("group", group)
+            .tag("topic", partition.topic())
+            .tag("partition", String.valueOf(partition.partition()))
+            .baseUnit("records")
+            .strongReference(true)
+            .register(registry);
+        Gauge.builder("kafka.consumer.lag.seconds", holder, current -> current.lag.timeLagSeconds())
+            .description("Estimated time since the committed offset was the latest offset")
+            .tag("group", group)
+            .tag("topic", partition.topic())
+            .tag("partition", String.valueOf(partition.partition()))
+            .baseUnit("seconds")
+            .strongReference(true)
+            .register(registry);
+    }
+
+    private static Map<TopicPartition, OffsetSpec> specs(Set<TopicPartition> partitions,
+                                                         Function<TopicPartition, OffsetSpec> spec) {
+        return partitions.stream().collect(Collectors.toMap(Function.identity(), spec));
+    }
+
+    private <T> T await(KafkaFuture<T> future) throws ExecutionException, InterruptedException, TimeoutException {
+        return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+        admin.close(timeout);
+    }
+
+    /**
+     * @param endOffset      latest offset, {@code endOffset - lag} is the position of the group
+     * @param timeLagSeconds {@code 0} if there is no lag
+     */
+    public record Lag(TopicPartition partition, long endOffset, long lag, double timeLagSeconds) {}
+
+    private static final class Holder {
+        private volatile Lag lag;
+
+        private Holder(Lag lag) {
+            this.lag = lag;
+        }
+    }
+
+    /**
+     * Latest offsets of a partition with the time they were first seen, oldest are overwritten
+     */
+    private static final class OffsetHistory {
+        private final long[] times = new long[HISTORY_SIZE];
+        private final long[] offsets = new long[HISTORY_SIZE];
+        private int size;
+        private int next;
+
+        void add(long time, long offset) {
+            if (size > 0 && offsets[index(size - 1)] == offset) {
+                return; // nothing produced since the previous poll
+            }
+            times[next] = time;
+            offsets[next] = offset;
+            next = (next + 1) % HISTORY_SIZE;
+            size = Math.min(size + 1, HISTORY_SIZE);
+        }
+
+        /**
+         * Interpolates when the log end passed {@code offset}, older than the history - time of the oldest sample
+         */
+        double secondsSince(long offset, long now) {
+            if (size == 0) {
+                return 0;
+            }
+            var produced = times[index(0)];
+            for (int i = size - 1; i > 0; i--) {
+                var newer = index(i);
+                var older = index(i - 1);
+                if (offsets[older] <= offset && offset < offsets[newer]) {
+                    var fraction = (double) (offset - offsets[older]) / (offsets[newer] - offsets[older]);
+                    produced = times[older] + (long) (fraction * (times[newer] - times[older]));
+                    break;
+                }
+            }
+            return Math.max(0, now - produced) / 1000.0;
+        }
+
+        private int index(int i) {
+            return (next - size + i + HISTORY_SIZE) % HISTORY_SIZE;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package bitxon.spring.kafka.metrics;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared by modules with {@code @Import} whose listeners use {@code spring.kafka.*} connection and consumer group.
+ * Not a {@code @Configuration}, so component scan of {@code bitxon.spring.kafka} doesn't pick it up
+ * without {@code custom.lag.enabled} condition of the importing configuration
+ */
+public class ConsumerLagMonitorConfig {
+
+    /**
+     * {@code kafka.consumer.lag} and {@code kafka.consumer.lag.seconds} of own consumer group per partition
+     */
+    @Bean
+    public ConsumerLagMonitor consumerLagMonitor(
+        KafkaAdmin kafkaAdmin,
+        @Value("${spring.kafka.consumer.group-id}") String groupId,
+        @Value("${custom.lag.topics}") String[] topics,
+        @Value("${custom.lag.poll-interval:10s}") Duration pollInterval,
+        @Value("${custom.lag.metadata-ttl:5m}") Duration metadataTtl,
+        @Value("${custom.lag.timeout:5s}") Duration timeout
+    ) {
+        var admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+        return new ConsumerLagMonitor(admin, Map.of(groupId, List.of(topics)), pollInterval, metadataTtl, timeout);
+    }
+}
@@ -0,0 +1,389 @@
+package bitxon.spring.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConsumerAwareRecordRecoverer;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ListenerContainerRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Listener meters tagged by {@code listener}, {@code topic} and {@code partition}:
+ * <ul>
+ *     <li>{@code kafka.listener.handle} - from interception to success or failure of a record, {@code result} tag</li>
+ *     <li>{@code kafka.listener.latency} - end-to-end latency from the record timestamp to successful handling</li>
+ *     <li>{@code kafka.listener.validate} - payload validation, see {@link #validator}</li>
+ *     <li>{@code kafka.listener.deserialize} - payload conversion by listener adapter, see {@link #deserialize}</li>
+ *     <li>{@code kafka.listener.conversion.failures} - records that can't be deserialized or converted</li>
+ *     <li>{@code kafka.listener.retries} - redeliveries of a failed record (batch - of a failed batch)</li>
+ *     <li>{@code kafka.listener.errors} - failed deliveries reported by error handler, see {@link #retryListener}</li>
+ *     <li>{@code kafka.listener.recovered} - records given up on, {@code recoverer} tag, see {@link #recoverer}</li>
+ * </ul>
+ * Batches are measured per {@code listener} and {@code topic}: {@code kafka.listener.batch} timer
+ * and {@code kafka.listener.batch.size} distribution.
+ * <p>
+ * Listener id is resolved from the record topic by containers of {@link ListenerContainerRegistry}.
+ * Timers publish percentile histograms (1ms..1min) for {@code /actuator/prometheus}.
+ */
+public class ListenerMetrics {
+    public static final String UNKNOWN = "unknown";
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(1);
+
+    private final MeterRegistry registry;
+    private final ListenerContainerRegistry containers;
+    private final Map<String, String> listenerIds = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionMeters> partitionMeters = new ConcurrentHashMap<>();
+    private final Map<String, BatchMeters> batchMeters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> recovered = new ConcurrentHashMap<>();
+    private final ThreadLocal<Delivery> delivery = new ThreadLocal<>();
+
+    public ListenerMetrics(MeterRegistry registry, ListenerContainerRegistry containers) {
+        this.registry = registry;
+        this.containers = containers;
+    }
+
+    /**
+     * Measures handling of records, must run on the consumer thread (first in composite interceptors)
+     */
+    public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+        return new MeteredRecordInterceptor<>();
+    }
+
+    /**
+     * Measures handling of batches, must run on the consumer thread (first in composite interceptors)
+     */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor() {
+        return new MeteredBatchInterceptor<>();
+    }
+
+    /**
+     * Register on {@link org.springframework.kafka.listener.DefaultErrorHandler#setRetryListeners DefaultErrorHandler}
+     */
+    public RetryListener retryListener() {
+        return new RetryListener() {
+            @Override
+            public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+                errors(record, ex).increment();
+            }
+
+            @Override
+            public void failedDelivery(ConsumerRecords<?, ?> records, Exception ex, int deliveryAttempt) {
+                records.forEach(record -> errors(record, ex).increment());
+            }
+        };
+    }
+
+    /**
+     * Counts records passed to {@code delegate}, e.g. {@code recoverer("dlq", deadLetterPublishingRecoverer)}
+     */
+    public ConsumerAwareRecordRecoverer recoverer(String name, ConsumerRecordRecoverer delegate) {
+        return (record, consumer, exception) -> {
+            if (delegate instanceof ConsumerAwareRecordRecoverer consumerAware) {
+                consumerAware.accept(record, consumer, exception); // e.g. dead letter gets consumer group header
+            } else {
+                delegate.accept(record, exception);
+            }
+            recovered(record, name);
+        };
+    }
+
+    public void recovered(ConsumerRecord<?, ?> record, String recoverer) {
+        var meters = meters(record);
+        recovered.computeIfAbsent(meters.key() + "/" + recoverer, __ -> Counter.builder("kafka.listener.recovered")
+            .description("Records given up on after failed handling")
+            .tags(meters.tags()).tag("recoverer", recoverer)
+            .register(registry)
+        ).increment();
+    }
+
+    /**
+     * Times conversion of the record payload, failures are counted as conversion failures and rethrown
+     */
+    public <T> T deserialize(ConsumerRecord<?, ?> record, Supplier<T> conversion) {
+        var meters = meters(record);
+        var start = System.nanoTime();
+        try {
+            return conversion.get();
+        } catch (RuntimeException e) {
+            meters.conversionFailures.increment();
+            throw e;
+        } finally {
+            meters.deserialize.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Times {@code delegate} for the record that is handled on the current thread,
+     * validation outside of {@link #recordInterceptor} is not measured
+     */
+    public Validator validator(Validator delegate) {
+        return new Validator() {
+            @Override
+            public boolean supports(Class<?> clazz) {
+                return delegate.supports(clazz);
+            }
+
+            @Override
+            public void validate(Object target, Errors errors) {
+                var current = delivery.get();
+                if (current == null) {
+                    delegate.validate(target, errors);
+                    return;
+                }
+                var start = System.nanoTime();
+                try {
+                    delegate.validate(target, errors);
+                } finally {
+                    current.meters.validate.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+
+    String listenerId(String topic) {
+        return listenerIds.computeIfAbsent(topic, this::resolveListenerId);
+    }
+
+    private String resolveListenerId(String topic) {
+        String stopped = null;
+        for (var container : containers.getAllListenerContainers()) {
+            if (subscribesTo(container, topic)) {
+                if (container.isRunning()) {
+                    return container.getListenerId();
+                }
+                stopped = container.getListenerId(); // e.g. batch and record listeners of one topic, only one is started
+            }
+        }
+        return stopped != null ? stopped : UNKNOWN;
+    }
+
+    private static boolean subscribesTo(MessageListenerContainer container, String topic) {
+        try {
+            var topics = container.getContainerProperties().getTopics();
+            return topics != null && Arrays.asList(topics).contains(topic);
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private PartitionMeters meters(ConsumerRecord<?, ?> record) {
+        var partition = new TopicPartition(record.topic(), record.partition());
+        return partitionMeters.computeIfAbsent(partition, this::newPartitionMeters);
+    }
+
+    private PartitionMeters newPartitionMeters(TopicPartition partition) {
+        var tags = Tags.of(
+            "listener", listenerId(partition.topic()),
+            "topic", partition.topic(),
+            "partition", String.valueOf(partition.partition())
+        );
+        return new PartitionMeters(tags, partition.toString(),
+            timer("kafka.listener.handle", "Handling of a record", tags.and("result", "success")),
+            timer("kafka.listener.handle", "Handling of a record", tags.and("result", "failure")),
+            timer("kafka.listener.latency", "Time from the record timestamp to successful handling", tags),
+            timer("kafka.listener.validate", "Validation of a payload", tags),
+            timer("kafka.listener.deserialize", "Conversion of a payload", tags),
+            counter("kafka.listener.conversion.failures", "Records that can't be deserialized or converted", tags),
+            counter("kafka.listener.retries", "Redeliveries of failed records", tags),
+            new FailedRange()
+        );
+    }
+
+    private BatchMeters batchMeters(ConsumerRecords<?, ?> records) {
+        var topic = records.partitions().iterator().next().topic();
+        return batchMeters.computeIfAbsent(topic, __ -> {
+            var tags = Tags.of("listener", listenerId(topic), "topic", topic);
+            return new BatchMeters(
+                timer("kafka.listener.batch", "Handling of a batch", tags.and("result", "success")),
+                timer("kafka.listener.batch", "Handling of a batch", tags.and("result", "failure")),
+                DistributionSummary.builder("kafka.listener.batch.size")
+                    .description("Records per batch")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(10_000.0)
+                    .register(registry)
+            );
+        });
+    }
+
+    private Counter errors(ConsumerRecord<?, ?> record, Exception exception) {
+        var cause = exception.getCause() != null ? exception.getCause() : exception; // unwrap ListenerExecutionFailedException
+        return Counter.builder("kafka.listener.errors")
+            .description("Failed deliveries reported by error handler")
+            .tags(meters(record).tags()).tag("exception", cause.getClass().getSimpleName())
+            .register(registry);
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+            .description(description)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(registry);
+    }
+
+    private Counter counter(String name, String description, Tags tags) {
+        return Counter.builder(name).description(description).tags(tags).register(registry);
+    }
+
+    static boolean isConversionFailure(Throwable exception) {
+        for (var cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException || cause instanceof ConversionException
+                || cause instanceof MessageConversionException || cause instanceof SerializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Delivery(PartitionMeters meters, long startNanos) {}
+
+    private record PartitionMeters(Tags tags, String key,
+                                   Timer handleSuccess, Timer handleFailure, Timer latency, Timer validate,
+                                   Timer deserialize, Counter conversionFailures, Counter retries,
+                                   FailedRange failed) {}
+
+    private record BatchMeters(Timer handleSuccess, Timer handleFailure, DistributionSummary size) {}
+
+    /**
+     * Offsets of the last failed delivery of a partition, redelivery starts within them
+     */
+    private static final class FailedRange {
+        private volatile long first = -1;
+        private volatile long last = -1;
+
+        void set(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        boolean isRedelivery(long offset) {
+            return first <= offset && offset <= last;
+        }
+    }
+
+    private class MeteredRecordInterceptor<K, V> implements RecordInterceptor<K, V> {
+
+        @Override
+        public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+            var meters = meters(record);
+            if (meters.failed.isRedelivery(record.offset())) {
+                meters.retries.increment();
+            }
+            delivery.set(new Delivery(meters, System.nanoTime()));
+            return record;
+        }
+
+        @Override
+        public void success(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+            var current = delivery.get();
+            if (current != null) {
+                current.meters.handleSuccess.record(System.nanoTime() - current.startNanos, TimeUnit.NANOSECONDS);
+                recordLatency(current.meters, record);
+            }
+        }
+
+        @Override
+        public void failure(ConsumerRecord<K, V> record, Exception exception, Consumer<K, V> consumer) {
+            var current = delivery.get();
+            var meters = current != null ? current.meters : meters(record);
+            if (current != null) {
+                meters.handleFailure.record(System.nanoTime() - current.startNanos, TimeUnit.NANOSECONDS);
+            }
+            meters.failed.set(record.offset(), record.offset());
+            if (isConversionFailure(exception)) {
+                meters.conversionFailures.increment();
+            }
+        }
+
+        @Override
+        public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+            delivery.remove();
+        }
+    }
+
+    private class MeteredBatchInterceptor<K, V> implements BatchInterceptor<K, V> {
+        private final ThreadLocal<Long> batchStart = new ThreadLocal<>();
+
+        @Override
+        public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+            if (records.isEmpty()) {
+                return records;
+            }
+            batchMeters(records).size.record(records.count());
+            for (var partition : records.partitions()) {
+                var first = records.records(partition).get(0);
+                var meters = meters(first);
+                if (meters.failed.isRedelivery(first.offset())) {
+                    meters.retries.increment();
+                }
+            }
+            batchStart.set(System.nanoTime());
+            return records;
+        }
+
+        @Override
+        public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+            var start = batchStart.get();
+            if (start == null) {
+                return;
+            }
+            batchStart.remove();
+            batchMeters(records).handleSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (var partition : records.partitions()) {
+                var partitionRecords = records.records(partition);
+                var meters = meters(partitionRecords.get(0));
+                partitionRecords.forEach(record -> recordLatency(meters, record));
+            }
+        }
+
+        @Override
+        public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+            var start = batchStart.get();
+            if (start == null) {
+                return;
+            }
+            batchStart.remove();
+            batchMeters(records).handleFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (var partition : records.partitions()) {
+                var partitionRecords = records.records(partition);
+                meters(partitionRecords.get(0)).failed
+                    .set(partitionRecords.get(0).offset(), partitionRecords.get(partitionRecords.size() - 1).offset());
+            }
+        }
+    }
+
+    private static void recordLatency(PartitionMeters meters, ConsumerRecord<?, ?> record) {
+        if (record.timestamp() > 0) {
+            meters.latency.record(Math.max(0, System.currentTimeMillis() - record.timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package bitxon.spring.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rebalance listeners of listener containers, exported by {@code listener} tag:
+ * <ul>
+ *     <li>{@code kafka.consumer.rebalances} - completed rebalances (assignments) per consumer</li>
+ *     <li>{@code kafka.consumer.rebalance.partitions} - partitions {@code assigned}, {@code revoked} and {@code lost}</li>
+ *     <li>{@code kafka.consumer.rebalance.duration} - from revocation until the consumer gets an assignment again,
+ *     with incremental cooperative rebalancing only moved partitions stop, consumers without revocation are not timed</li>
+ *     <li>{@code kafka.consumer.rebalance.records.paused} - lag of revoked and lost partitions,
+ *     records that wait for the new owner</li>
+ * </ul>
+ * On revocation the consumer waits (up to {@code drainTimeout}) for records of revoked partitions that are handed off
+ * to other threads, so their acknowledgments are committed by the container right after the listener returns
+ * instead of being processed again by the new owner.
+ */
+public class RebalanceMetrics {
+    private final MeterRegistry registry;
+    private final Duration drainTimeout;
+
+    public RebalanceMetrics(MeterRegistry registry, Duration drainTimeout) {
+        this.registry = registry;
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * For listeners that handle records on the consumer thread, nothing is in flight on revocation
+     */
+    public ConsumerAwareRebalanceListener listener(String listenerId) {
+        return listener(listenerId, __ -> 0);
+    }
+
+    /**
+     * @param inFlight records of a partition handed off to other threads and not acknowledged yet
+     */
+    public ConsumerAwareRebalanceListener listener(String listenerId, ToIntFunction<TopicPartition> inFlight) {
+        return new Listener(listenerId, inFlight);
+    }
+
+    private final class Listener implements ConsumerAwareRebalanceListener {
+        private final ToIntFunction<TopicPartition> inFlight;
+        private final Counter rebalances;
+        private final Counter assigned;
+        private final Counter revoked;
+        private final Counter lost;
+        private final Counter recordsPaused;
+        private final Timer duration;
+        private final Timer drain;
+        private final Map<String, Long> revokedAtNanos = new ConcurrentHashMap<>(); // by consumer
+
+        private Listener(String listenerId, ToIntFunction<TopicPartition> inFlight) {
+            this.inFlight = inFlight;
+            this.rebalances = Counter.builder("kafka.consumer.rebalances")
+                .description("Completed rebalances, counted by every consumer")
+                .tag("listener", listenerId)
+                .register(registry);
+            this.assigned = partitions(listenerId, "assigned");
+            this.revoked = partitions(listenerId, "revoked");
+            this.lost = partitions(listenerId, "lost");
+            this.recordsPaused = Counter.builder("kafka.consumer.rebalance.records.paused")
+                .description("Lag of revoked and lost partitions")
+                .tag("listener", listenerId)
+                .register(registry);
+            this.duration = Timer.builder("kafka.consumer.rebalance.duration")
+                .description("From revocation until the consumer gets an assignment again")
+                .tag("listener", listenerId)
+                .register(registry);
+            this.drain = Timer.builder("kafka.consumer.rebalance.drain")
+                .description("Waiting for in-flight records of revoked partitions")
+                .tag("listener", listenerId)
+                .register(registry);
+        }
+
+        private Counter partitions(String listenerId, String type) {
+            return Counter.builder("kafka.consumer.rebalance.partitions")
+                .description("Partitions moved by rebalances")
+                .tag("listener", listenerId)
+                .tag("type", type)
+                .register(registry);
+        }
+
+        @Override
+        public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            if (partitions.isEmpty()) {
+                return;
+            }
+            stopped(consumer, partitions, revoked);
+            drain.record(() -> awaitInFlight(partitions));
+        }
+
+        @Override
+        public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            if (!partitions.isEmpty()) {
+                stopped(consumer, partitions, lost); // already owned by others, nothing to commit
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            rebalances.increment();
+            assigned.increment(partitions.size());
+            var revokedAt = revokedAtNanos.remove(key(consumer));
+            if (revokedAt != null) {
+                duration.record(System.nanoTime() - revokedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void stopped(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, Counter counter) {
+            revokedAtNanos.putIfAbsent(key(consumer), System.nanoTime());
+            counter.increment(partitions.size());
+            long lag = 0;
+            for (var partition : partitions) {
+                lag += consumer.currentLag(partition).orElse(0); // from the last fetch, no request to the broker
+            }
+            recordsPaused.increment(lag);
+        }
+
+        private void awaitInFlight(Collection<TopicPartition> partitions) {
+            var deadline = System.nanoTime() + drainTimeout.toNanos();
+            while (partitions.stream().mapToInt(inFlight).sum() > 0 && System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Static member keeps its {@code group.instance.id} across restarts, dynamic one - consumer thread
+         */
+        private static String key(Consumer<?, ?> consumer) {
+            return consumer.groupMetadata().groupInstanceId().orElseGet(() -> Thread.currentThread().getName());
+        }
+    }
+}
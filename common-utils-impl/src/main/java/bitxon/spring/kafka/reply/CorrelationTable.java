@@ -0,0 +1,63 @@
+package bitxon.spring.kafka.reply;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free map of pending requests keyed by sequential correlation id, sized for {@code capacity} entries at once.
+ * <p>
+ * Slot of an id is fixed (no hashing collisions or resizing): slots are split into stripes and consecutive ids go
+ * to different stripes, so threads registering requests at the same time don't CAS neighbouring slots
+ * (same cache line). There are twice as many slots as entries, an id whose slot is still held by an old entry
+ * is skipped.
+ */
+class CorrelationTable<T> {
+    private static final int STRIPES = 16;
+
+    private final AtomicReferenceArray<Entry<T>> slots;
+    private final int stripeBits;
+    private final int stripeMask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    CorrelationTable(int capacity) {
+        var perStripe = Integer.highestOneBit(Math.max(1, 2 * capacity / STRIPES - 1)) << 1; // power of two
+        this.slots = new AtomicReferenceArray<>(perStripe * STRIPES);
+        this.stripeBits = Integer.numberOfTrailingZeros(perStripe);
+        this.stripeMask = perStripe - 1;
+    }
+
+    /**
+     * Caller must keep no more than {@code capacity} entries, otherwise this may spin looking for a free slot
+     *
+     * @return correlation id of the value
+     */
+    long put(T value) {
+        while (true) {
+            var id = sequence.getAndIncrement();
+            var entry = new Entry<>(id, value);
+            if (slots.compareAndSet(slot(id), null, entry)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return value of the id, {@code null} if it was already removed (or id is unknown)
+     */
+    T remove(long id) {
+        var slot = slot(id);
+        var entry = slots.get(slot);
+        if (entry == null || entry.id != id || !slots.compareAndSet(slot, entry, null)) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    private int slot(long id) {
+        var stripe = (int) (id & (STRIPES - 1));
+        var index = (int) ((id >>> 4) & stripeMask); // 4 = log2(STRIPES)
+        return (stripe << stripeBits) | index;
+    }
+
+    private record Entry<T>(long id, T value) {}
+}
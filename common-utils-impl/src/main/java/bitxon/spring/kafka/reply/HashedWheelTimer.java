@@ -0,0 +1,146 @@
+package bitxon.spring.kafka.reply;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer for many short timeouts that are mostly cancelled (e.g. one per request): scheduling and cancelling
+ * are O(1) and lock-free, expiration precision is one {@code tick}.
+ * <p>
+ * Timeouts are queued by callers and moved to a bucket of the wheel ({@code ticksPerWheel} buckets) by the single
+ * worker thread, which expires one bucket per tick. Timeout further than one revolution waits for its remaining
+ * rounds, cancelled ones are dropped when their bucket comes around. Tasks run on the worker thread,
+ * so they must be short.
+ */
+public class HashedWheelTimer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final ArrayList<Timeout>[] wheel; // worker thread only
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String name, Duration tick, int ticksPerWheel) {
+        var size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1; // power of two
+        this.tickNanos = tick.toNanos();
+        this.wheel = new ArrayList[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "wheel-timer-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @return handle to cancel the task, it runs once after {@code delay} (rounded up to a tick) unless cancelled
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        var timeout = new Timeout(task, System.nanoTime() + delay.toNanos());
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            var deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferScheduled();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            var ticks = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+            timeout.rounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private static void expire(ArrayList<Timeout> bucket) {
+        var kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            var timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            timeout.expire();
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * Pending timeouts are dropped
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long rounds; // worker thread only
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return {@code false} if the task already ran (or was cancelled)
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Timeout task failed", e);
+            }
+        }
+    }
+}
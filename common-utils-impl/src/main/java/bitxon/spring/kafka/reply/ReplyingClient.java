@@ -0,0 +1,197 @@
+package bitxon.spring.kafka.reply;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends requests to {@code requestTopic} and completes their futures with replies this client receives as
+ * {@link MessageListener} (of a container subscribed to the reply topic with its own consumer group).
+ * <p>
+ * Request carries {@link KafkaHeaders#CORRELATION_ID} (16 bytes: id of this client + sequence), {@code @SendTo}
+ * copies it to the reply; replies of other clients on the same topic are ignored:
+ * <ul>
+ *     <li>at most {@code maxInFlight} requests wait for a reply, more are rejected right away
+ *     with {@link RejectedExecutionException}</li>
+ *     <li>request without reply within its timeout fails with {@link TimeoutException},
+ *     a reply that comes later is counted as {@code late}</li>
+ * </ul>
+ * Futures are completed on the reply consumer thread (or the timer thread), dependent stages that block or take
+ * long should use {@code *Async} variants.
+ * <p>
+ * Exported as {@code reply.client.requests} counter (by {@code result}), {@code reply.client.latency} timer and
+ * {@code reply.client.in-flight} gauge, tagged by {@code client}.
+ */
+public class ReplyingClient<K, V, R> implements MessageListener<K, R>, MeterBinder {
+    private final String name;
+    private final KafkaTemplate<K, V> template;
+    private final String requestTopic;
+    private final Duration defaultTimeout;
+    private final HashedWheelTimer timer;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final CorrelationTable<Pending<R>> pending;
+    private final long clientId = ThreadLocalRandom.current().nextLong();
+    private volatile Counter replied;
+    private volatile Counter timedOut;
+    private volatile Counter rejected;
+    private volatile Counter failed;
+    private volatile Counter late;
+    private volatile Timer latency;
+
+    public ReplyingClient(String name, KafkaTemplate<K, V> template, String requestTopic, Duration defaultTimeout,
+                          HashedWheelTimer timer, int maxInFlight) {
+        this.name = name;
+        this.template = template;
+        this.requestTopic = requestTopic;
+        this.defaultTimeout = defaultTimeout;
+        this.timer = timer;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.pending = new CorrelationTable<>(maxInFlight);
+    }
+
+    public CompletableFuture<R> request(K key, V value) {
+        return request(key, value, defaultTimeout);
+    }
+
+    public CompletableFuture<R> request(K key, V value, Duration timeout) {
+        if (!permits.tryAcquire()) {
+            increment(rejected);
+            return CompletableFuture.failedFuture(
+                new RejectedExecutionException(maxInFlight + " requests of " + name + " are already waiting for replies"));
+        }
+        var request = new Pending<R>(System.nanoTime());
+        var id = pending.put(request);
+        request.timeout = timer.schedule(() -> expire(id), timeout);
+
+        var record = new ProducerRecord<K, V>(requestTopic, key, value);
+        record.headers().add(KafkaHeaders.CORRELATION_ID, correlationId(id));
+        template.send(record).whenComplete((__, exception) -> {
+            if (exception != null) {
+                fail(id, exception);
+            }
+        });
+        return request.future;
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, R> reply) {
+        var header = reply.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+        if (header == null || header.value().length != 16) {
+            return;
+        }
+        var correlationId = ByteBuffer.wrap(header.value());
+        if (correlationId.getLong() != clientId) {
+            return; // request of another client
+        }
+        var request = remove(correlationId.getLong());
+        if (request == null) {
+            increment(late);
+            return;
+        }
+        request.timeout.cancel();
+        if (latency != null) {
+            latency.record(System.nanoTime() - request.startNanos, TimeUnit.NANOSECONDS);
+        }
+        increment(replied);
+        request.future.complete(reply.value());
+    }
+
+    private void expire(long id) {
+        var request = remove(id);
+        if (request != null) {
+            increment(timedOut);
+            request.future.completeExceptionally(new TimeoutException("No reply from " + requestTopic));
+        }
+    }
+
+    private void fail(long id, Throwable exception) {
+        var request = remove(id);
+        if (request != null) {
+            request.timeout.cancel();
+            increment(failed);
+            request.future.completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Exactly one of reply, timeout and send failure gets the request, it returns the permit
+     */
+    private Pending<R> remove(long id) {
+        var request = pending.remove(id);
+        if (request != null) {
+            permits.release();
+        }
+        return request;
+    }
+
+    private byte[] correlationId(long id) {
+        return ByteBuffer.allocate(16).putLong(clientId).putLong(id).array();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        replied = requests(registry, "replied");
+        timedOut = requests(registry, "timeout");
+        rejected = requests(registry, "rejected");
+        failed = requests(registry, "failed");
+        late = Counter.builder("reply.client.late")
+            .description("Replies that came after their request timed out")
+            .tag("client", name)
+            .register(registry);
+        latency = Timer.builder("reply.client.latency")
+            .description("From request until its reply")
+            .tag("client", name)
+            .publishPercentileHistogram()
+            .register(registry);
+        Gauge.builder("reply.client.in-flight", this, ReplyingClient::getInFlight)
+            .description("Requests waiting for a reply")
+            .tag("client", name)
+            .register(registry);
+    }
+
+    private Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("reply.client.requests")
+            .description("Completed requests")
+            .tag("client", name)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static final class Pending<R> {
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private final long startNanos;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private Pending(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
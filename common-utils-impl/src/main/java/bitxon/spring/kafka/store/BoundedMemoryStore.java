@@ -0,0 +1,120 @@
+package bitxon.spring.kafka.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring buffer of the last {@code capacity} records on heap, unlike a linked queue nothing is allocated per record
+ */
+public class BoundedMemoryStore<T> implements ProcessedStore<T> {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object[] slots;
+    private long head; // sequence of the oldest retained record
+    private long tail; // sequence of the next record
+    private long dropped;
+
+    public BoundedMemoryStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.slots = new Object[capacity];
+    }
+
+    @Override
+    public void add(T value) {
+        lock.lock();
+        try {
+            append(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends T> values) {
+        lock.lock();
+        try {
+            values.forEach(this::append);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(T value) {
+        if (tail - head == slots.length) {
+            head++;
+            dropped++;
+        }
+        slots[index(tail++)] = value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        lock.lock();
+        try {
+            if (head == tail) {
+                return null;
+            }
+            var index = index(head++);
+            var value = (T) slots[index];
+            slots[index] = null;
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            while (head < tail) {
+                slots[index(head++)] = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<T> iterator() {
+        lock.lock();
+        try {
+            var snapshot = new ArrayList<T>((int) (tail - head));
+            for (var sequence = head; sequence < tail; sequence++) {
+                snapshot.add((T) slots[index(sequence)]);
+            }
+            return snapshot.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length);
+    }
+}
@@ -0,0 +1,247 @@
+package bitxon.spring.kafka.store;
+
+import bitxon.spring.kafka.codec.SchemaRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps records in {@link bitxon.spring.kafka.codec.BinaryCodec binary form} outside of the Java heap:
+ * <pre>
+ * [MAGIC][schema id: int][head: int][tail: int][count: int][dropped: long][length: int][record]...
+ * </pre>
+ * Records are appended at {@code tail} and consumed from {@code head}. When there is no room at the end, live records
+ * are moved to the start of the buffer, oldest records are dropped first until live records take at most half of it
+ * (so moving costs O(1) per record on average).
+ * <p>
+ * {@link #close()} releases the buffer, the store can't be used afterwards.
+ */
+abstract class BufferStore<T extends Record> implements ProcessedStore<T> {
+    static final int MAGIC = 0x50535431;
+    static final int HEADER_SIZE = 5 * Integer.BYTES + Long.BYTES;
+    private static final int SCHEMA_OFFSET = 4;
+    private static final int HEAD_OFFSET = 8;
+    private static final int TAIL_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int DROPPED_OFFSET = 20;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Class<T> type;
+    private final SchemaRegistry registry;
+    private final int schemaId;
+    protected final ByteBuffer buffer;
+    private int head;
+    private int tail;
+    private int count;
+    private long dropped;
+    private boolean closed;
+
+    BufferStore(Class<T> type, ByteBuffer buffer) {
+        if (buffer.capacity() <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Capacity must be greater than %d bytes".formatted(HEADER_SIZE));
+        }
+        this.type = type;
+        this.registry = new SchemaRegistry();
+        this.schemaId = registry.register(type).getSchemaId();
+        this.buffer = buffer;
+        if (!restore()) {
+            reset();
+        }
+    }
+
+    /**
+     * Picks up records left in the buffer by a previous store of the same schema
+     *
+     * @throws IllegalStateException if the buffer is of other schema or its header doesn't match its records
+     */
+    private boolean restore() {
+        if (buffer.getInt(0) != MAGIC) {
+            return false;
+        }
+        if (buffer.getInt(SCHEMA_OFFSET) != schemaId) {
+            throw new IllegalStateException("Store was written with other schema than " + registry.register(type).getSchema());
+        }
+        head = buffer.getInt(HEAD_OFFSET);
+        tail = buffer.getInt(TAIL_OFFSET);
+        count = buffer.getInt(COUNT_OFFSET);
+        dropped = buffer.getLong(DROPPED_OFFSET);
+        if (!(HEADER_SIZE <= head && head <= tail && tail <= buffer.capacity()) || countRecords() != count) {
+            throw new IllegalStateException("Store is corrupted: head %d, tail %d and %d records of %d bytes don't match"
+                .formatted(head, tail, count, buffer.capacity()));
+        }
+        return true;
+    }
+
+    /**
+     * @return number of records between {@code head} and {@code tail}, {@code -1} if a record crosses {@code tail}
+     */
+    private int countRecords() {
+        var records = 0;
+        for (var position = head; position < tail; records++) {
+            var length = position + Integer.BYTES <= tail ? buffer.getInt(position) : -1;
+            if (length < 0 || length > tail - position - Integer.BYTES) {
+                return -1;
+            }
+            position += Integer.BYTES + length;
+        }
+        return records;
+    }
+
+    @Override
+    public void addAll(Collection<? extends T> values) {
+        lock.lock();
+        try {
+            ensureOpen();
+            values.forEach(this::append);
+            writeHeader(); // once per batch
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(T value) {
+        var bytes = registry.encode(value);
+        var frame = Integer.BYTES + bytes.length;
+        if (frame > buffer.capacity() - HEADER_SIZE) {
+            throw new IllegalArgumentException("Record of %d bytes does not fit into store".formatted(bytes.length));
+        }
+        if (tail + frame > buffer.capacity()) {
+            makeRoom(frame);
+        }
+        buffer.putInt(tail, bytes.length);
+        buffer.put(tail + Integer.BYTES, bytes);
+        tail += frame;
+        count++;
+    }
+
+    private void makeRoom(int frame) {
+        var space = buffer.capacity() - HEADER_SIZE;
+        while (count > 0 && tail - head + frame > space / 2) {
+            head += Integer.BYTES + buffer.getInt(head);
+            count--;
+            dropped++;
+        }
+        var live = buffer.slice(HEADER_SIZE, space).position(head - HEADER_SIZE).limit(tail - HEADER_SIZE);
+        live.compact(); // moves live records to the start
+        tail = HEADER_SIZE + tail - head;
+        head = HEADER_SIZE;
+    }
+
+    @Override
+    public T poll() {
+        lock.lock();
+        try {
+            ensureOpen();
+            if (count == 0) {
+                return null;
+            }
+            var length = buffer.getInt(head);
+            var value = decode(head + Integer.BYTES, length);
+            head += Integer.BYTES + length;
+            if (--count == 0) {
+                head = tail = HEADER_SIZE;
+            }
+            writeHeader();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            ensureOpen();
+            head = tail = HEADER_SIZE;
+            count = 0;
+            writeHeader();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        lock.lock();
+        try {
+            ensureOpen();
+            var snapshot = new ArrayList<T>(count);
+            for (var position = head; position < tail; ) {
+                var length = buffer.getInt(position);
+                snapshot.add(decode(position + Integer.BYTES, length));
+                position += Integer.BYTES + length;
+            }
+            return snapshot.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the buffer, called once by {@link #close()}
+     */
+    protected abstract void release();
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store is closed");
+        }
+    }
+
+    private T decode(int position, int length) {
+        return type.cast(registry.decode(buffer.slice(position, length)));
+    }
+
+    private void reset() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(SCHEMA_OFFSET, schemaId);
+        head = tail = HEADER_SIZE;
+        count = 0;
+        dropped = 0;
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(HEAD_OFFSET, head);
+        buffer.putInt(TAIL_OFFSET, tail);
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putLong(DROPPED_OFFSET, dropped);
+    }
+}
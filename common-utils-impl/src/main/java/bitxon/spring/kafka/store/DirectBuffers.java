@@ -0,0 +1,45 @@
+package bitxon.spring.kafka.store;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees memory of a direct (or unmaps a mapped) buffer right away instead of when the buffer is garbage collected,
+ * which may take long for a buffer that lived in old generation. Falls back to GC if {@code sun.misc.Unsafe} is not
+ * available.
+ */
+final class DirectBuffers {
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private DirectBuffers() {
+    }
+
+    /**
+     * Buffer must not be accessed afterwards, it must be the allocated one (not a slice or duplicate)
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can't free direct buffer", e);
+        }
+    }
+
+    private static MethodHandle invokeCleaner() {
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package bitxon.spring.kafka.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Records are appended to a memory-mapped file of {@code capacityBytes}, records of a previous run are picked up on start,
+ * a file whose header doesn't match its records fails the start (delete it to start empty).
+ * <p>
+ * Page cache is flushed by OS, {@link #close()} forces it to disk
+ */
+public class MappedFileStore<T extends Record> extends BufferStore<T> {
+
+    public MappedFileStore(Class<T> type, Path file, int capacityBytes) {
+        super(type, map(file, capacityBytes));
+    }
+
+    /**
+     * Mapping stays valid after its channel is closed
+     */
+    private static MappedByteBuffer map(Path file, int capacityBytes) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (var channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't map " + file, e);
+        }
+    }
+
+    @Override
+    protected void release() {
+        try {
+            ((MappedByteBuffer) buffer).force();
+        } finally {
+            DirectBuffers.free(buffer); // unmaps the file
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package bitxon.spring.kafka.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Records are kept in a direct buffer of {@code capacityBytes}, retained records cost no heap and no GC work.
+ * <p>
+ * Direct memory is freed by {@link #close()}, not when the store is garbage collected
+ */
+public class OffHeapStore<T extends Record> extends BufferStore<T> {
+
+    public OffHeapStore(Class<T> type, int capacityBytes) {
+        super(type, ByteBuffer.allocateDirect(capacityBytes));
+    }
+
+    @Override
+    protected void release() {
+        DirectBuffers.free(buffer);
+    }
+}
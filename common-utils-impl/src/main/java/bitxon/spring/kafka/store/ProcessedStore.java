@@ -0,0 +1,58 @@
+package bitxon.spring.kafka.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Bounded FIFO of processed records: when it is full the oldest records are dropped to make room for new ones.
+ * <p>
+ * Iteration is a snapshot from the oldest to the newest retained record, {@link #poll()} consumes the oldest one.
+ * Implementations are thread-safe.
+ *
+ * @see BoundedMemoryStore
+ * @see OffHeapStore
+ * @see MappedFileStore
+ * @see SegmentedJournal
+ */
+public interface ProcessedStore<T> extends Iterable<T>, AutoCloseable {
+
+    default void add(T value) {
+        addAll(List.of(value));
+    }
+
+    /**
+     * Appends all {@code values} at once, cheaper than adding them one by one
+     */
+    void addAll(Collection<? extends T> values);
+
+    /**
+     * @return the oldest retained record (removing it) or {@code null} if store is empty
+     */
+    T poll();
+
+    /**
+     * @return number of retained records
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return number of records dropped because store was full
+     */
+    long getDropped();
+
+    void clear();
+
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    default void close() {
+    }
+}
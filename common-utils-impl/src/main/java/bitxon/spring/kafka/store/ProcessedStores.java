@@ -0,0 +1,52 @@
+package bitxon.spring.kafka.store;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Creates {@link ProcessedStore stores} of one kind for all listeners of the application:
+ * <ul>
+ *     <li>{@code memory} - last {@code capacity} records on heap</li>
+ *     <li>{@code off-heap} - records in binary form, up to {@code maxBytes} of direct memory per store</li>
+ *     <li>{@code file} - records in binary form, {@code <directory>/<name>.store} file of {@code maxBytes} per store</li>
+ *     <li>{@code journal} - durable {@link SegmentedJournal} in {@code <directory>/<name>}, up to {@code maxBytes}
+ *     in segments of {@code segmentBytes}</li>
+ * </ul>
+ */
+public class ProcessedStores {
+    private final Type type;
+    private final int capacity;
+    private final int maxBytes;
+    private final Path directory;
+    private final int segmentBytes;
+    private final Duration fsyncInterval;
+
+    public ProcessedStores(String type, int capacity, int maxBytes, Path directory,
+                           int segmentBytes, Duration fsyncInterval) {
+        this.type = Type.parse(type);
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public <T extends Record> ProcessedStore<T> create(String name, Class<T> recordType) {
+        return switch (type) {
+            case MEMORY -> new BoundedMemoryStore<>(capacity);
+            case OFF_HEAP -> new OffHeapStore<>(recordType, maxBytes);
+            case FILE -> new MappedFileStore<>(recordType, directory.resolve(name + ".store"), maxBytes);
+            case JOURNAL -> new SegmentedJournal<>(recordType, directory.resolve(name), segmentBytes,
+                Math.max(2, maxBytes / segmentBytes), fsyncInterval);
+        };
+    }
+
+    public enum Type {
+        MEMORY, OFF_HEAP, FILE, JOURNAL;
+
+        static Type parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+}
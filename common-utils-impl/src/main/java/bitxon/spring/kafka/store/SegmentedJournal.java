@@ -0,0 +1,497 @@
+package bitxon.spring.kafka.store;
+
+import bitxon.spring.kafka.codec.SchemaRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Durable append-only log of records in {@link bitxon.spring.kafka.codec.BinaryCodec binary form},
+ * split into memory-mapped segment files {@code <directory>/<base offset>.log}:
+ * <pre>
+ * [MAGIC][base offset: long][count: int][end: int][length: int][checksum: int][record]...
+ * </pre>
+ * Every record gets the next offset and a CRC32, segments keep an in-memory index by offset (rebuilt on open).
+ * When the active segment is full a new one is started, the oldest segment is deleted once there are more than
+ * {@code maxSegments}.
+ * <p>
+ * Header is written once per batch, so on open the last segment is truncated to its last valid record (a batch torn
+ * by a crash is dropped, with a warning), while an invalid sealed segment fails the open.
+ * <p>
+ * {@code fsyncInterval} of zero forces every appended batch to disk, positive interval forces it in background.
+ * <p>
+ * As {@link ProcessedStore} the journal has a read cursor: {@link #poll()}, {@link #size()} and iteration
+ * start from it, {@link #clear()} moves it to the end. Cursor is not persisted, it starts from the oldest record.
+ */
+public class SegmentedJournal<T extends Record> implements ProcessedStore<T> {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedJournal.class);
+    static final int MAGIC = 0x4A524E32;
+    static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BASE_OFFSET_OFFSET = 4;
+    private static final int COUNT_OFFSET = 12;
+    private static final int END_OFFSET = 16;
+    private static final String SUFFIX = ".log";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Class<T> type;
+    private final SchemaRegistry registry = new SchemaRegistry();
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final boolean fsyncEveryBatch;
+    private final ScheduledExecutorService fsyncScheduler;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long cursor;
+    private long dropped;
+    private boolean dirty;
+
+    /**
+     * @param segmentBytes  size of one segment file, record must fit into one segment
+     * @param maxSegments   number of segments to retain (including the active one)
+     * @param fsyncInterval {@link Duration#ZERO} - fsync every appended batch
+     */
+    public SegmentedJournal(Class<T> type, Path directory, int segmentBytes, int maxSegments, Duration fsyncInterval) {
+        if (segmentBytes <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment must be greater than %d bytes".formatted(HEADER_SIZE));
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("At least one segment must be retained: " + maxSegments);
+        }
+        this.type = type;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        registry.register(type);
+        open();
+        this.cursor = getStartOffset();
+
+        this.fsyncEveryBatch = fsyncInterval.isZero();
+        if (fsyncEveryBatch) {
+            this.fsyncScheduler = null;
+        } else {
+            this.fsyncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "journal-fsync-" + directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            var millis = fsyncInterval.toMillis();
+            fsyncScheduler.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                var existing = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+                for (var file : existing) {
+                    segments.add(Segment.open(file, segmentBytes, file == existing.get(existing.size() - 1)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open journal " + directory, e);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.create(directory, 0, segmentBytes));
+        }
+    }
+
+    /**
+     * @return offset of the oldest retained record
+     */
+    public long getStartOffset() {
+        lock.lock();
+        try {
+            return segments.getFirst().baseOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return offset the next record will get
+     */
+    public long getEndOffset() {
+        lock.lock();
+        try {
+            return segments.getLast().endOffset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return offset of the first record in {@code values}
+     */
+    public long append(Collection<? extends T> values) {
+        lock.lock();
+        try {
+            var firstOffset = segments.getLast().endOffset();
+            for (var value : values) {
+                var bytes = registry.encode(value);
+                if (FRAME_HEADER_SIZE + bytes.length > segmentBytes - HEADER_SIZE) {
+                    throw new IllegalArgumentException("Record of %d bytes does not fit into segment".formatted(bytes.length));
+                }
+                if (!segments.getLast().append(bytes)) {
+                    roll();
+                    segments.getLast().append(bytes);
+                }
+            }
+            segments.getLast().writeHeader(); // once per batch
+            dirty = true;
+            if (fsyncEveryBatch) {
+                flushLocked();
+            }
+            return firstOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() {
+        var sealed = segments.getLast();
+        sealed.writeHeader();
+        sealed.force();
+        segments.add(Segment.create(directory, sealed.endOffset(), segmentBytes));
+        while (segments.size() > maxSegments) {
+            var deleted = segments.removeFirst();
+            if (cursor < deleted.endOffset()) {
+                dropped += deleted.endOffset() - cursor;
+                cursor = deleted.endOffset();
+            }
+            deleted.delete();
+        }
+    }
+
+    /**
+     * Bulk sequential read: passes up to {@code maxRecords} records starting from {@code fromOffset} to {@code reader}
+     * as read-only buffers over the mapped files (valid only during the call), no record is decoded or copied
+     *
+     * @return offset after the last record passed to {@code reader}
+     */
+    public long read(long fromOffset, int maxRecords, Consumer<ByteBuffer> reader) {
+        lock.lock();
+        try {
+            var offset = Math.max(fromOffset, segments.getFirst().baseOffset);
+            var remaining = maxRecords;
+            for (var segment : segments) {
+                while (remaining > 0 && offset < segment.endOffset()) {
+                    if (offset >= segment.baseOffset) {
+                        reader.accept(segment.record(offset));
+                        remaining--;
+                    }
+                    offset++;
+                }
+            }
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bulk sequential read of up to {@code maxRecords} decoded records starting from {@code fromOffset}
+     */
+    public List<T> read(long fromOffset, int maxRecords) {
+        var values = new ArrayList<T>();
+        read(fromOffset, maxRecords, record -> values.add(type.cast(registry.decode(record))));
+        return values;
+    }
+
+    /**
+     * Forces appended records to disk
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        if (dirty) {
+            segments.getLast().force();
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends T> values) {
+        append(values);
+    }
+
+    @Override
+    public T poll() {
+        lock.lock();
+        try {
+            cursor = Math.max(cursor, segments.getFirst().baseOffset);
+            if (cursor == getEndOffset()) {
+                return null;
+            }
+            var values = read(cursor, 1);
+            cursor++;
+            return values.get(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return Math.toIntExact(getEndOffset() - Math.max(cursor, getStartOffset()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the read cursor to the end, records stay in the journal
+     */
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            cursor = getEndOffset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        lock.lock();
+        try {
+            return read(cursor, size()).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (fsyncScheduler != null) {
+            fsyncScheduler.shutdownNow();
+        }
+        lock.lock();
+        try {
+            segments.getLast().writeHeader();
+            flushLocked();
+            for (var segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final long baseOffset;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final CRC32 checksum = new CRC32();
+        private int[] positions = new int[1024]; // index: offset - baseOffset -> position of the record frame
+        private int count;
+        private int end = HEADER_SIZE;
+
+        private Segment(Path file, long baseOffset, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.baseOffset = baseOffset;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long baseOffset, int segmentBytes) {
+            var file = directory.resolve("%020d%s".formatted(baseOffset, SUFFIX));
+            var segment = map(file, baseOffset, segmentBytes);
+            segment.init();
+            return segment;
+        }
+
+        /**
+         * Rebuilds the index of records up to the end stored in the header, verifying their checksums
+         *
+         * @param last the last segment is truncated to its valid records instead of failing
+         */
+        static Segment open(Path file, int segmentBytes, boolean last) throws IOException {
+            var name = file.getFileName().toString();
+            var baseOffset = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            var segment = map(file, baseOffset, (int) Math.max(segmentBytes, Files.size(file)));
+            var buffer = segment.buffer;
+            if (buffer.getInt(0) != MAGIC || buffer.getLong(BASE_OFFSET_OFFSET) != baseOffset) {
+                if (!last) {
+                    segment.close();
+                    throw new IllegalStateException("Not a journal segment: " + file);
+                }
+                log.warn("Header of the last segment {} is not valid, segment is started empty", file);
+                segment.init();
+                return segment;
+            }
+            var count = buffer.getInt(COUNT_OFFSET);
+            var end = buffer.getInt(END_OFFSET);
+            var limit = HEADER_SIZE <= end && end <= buffer.capacity() ? end : buffer.capacity();
+            var position = HEADER_SIZE;
+            for (int frame; position < limit && (frame = segment.verify(position, limit)) > 0; position += frame) {
+                segment.index(position);
+            }
+            if (position != end || segment.count != count) {
+                if (!last) {
+                    segment.close();
+                    throw new IllegalStateException("Segment is corrupted at position %d of %d, %d of %d records are valid: %s"
+                        .formatted(position, end, segment.count, count, file));
+                }
+                log.warn("Last segment {} is truncated to {} of {} records, the rest was not completely written",
+                    file, segment.count, count);
+                buffer.put(position, new byte[limit - position]); // so dropped records can't be read again
+                segment.end = position;
+                segment.writeHeader();
+                return segment;
+            }
+            segment.end = end;
+            return segment;
+        }
+
+        private static Segment map(Path file, long baseOffset, int size) {
+            try {
+                var channel = FileChannel.open(file, CREATE, READ, WRITE);
+                try {
+                    return new Segment(file, baseOffset, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't map " + file, e);
+            }
+        }
+
+        private void init() {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(BASE_OFFSET_OFFSET, baseOffset);
+            writeHeader();
+        }
+
+        /**
+         * @return size of the record frame at {@code position}, {@code -1} if it is not within {@code limit}
+         * or its checksum doesn't match
+         */
+        private int verify(int position, int limit) {
+            if (position + FRAME_HEADER_SIZE > limit) {
+                return -1;
+            }
+            var length = buffer.getInt(position);
+            if (length <= 0 || length > limit - position - FRAME_HEADER_SIZE) {
+                return -1;
+            }
+            checksum.reset();
+            checksum.update(buffer.slice(position + FRAME_HEADER_SIZE, length));
+            return (int) checksum.getValue() == buffer.getInt(position + Integer.BYTES) ? FRAME_HEADER_SIZE + length : -1;
+        }
+
+        long endOffset() {
+            return baseOffset + count;
+        }
+
+        /**
+         * @return false if there is no room for {@code bytes}
+         */
+        boolean append(byte[] bytes) {
+            var frame = FRAME_HEADER_SIZE + bytes.length;
+            if (end + frame > buffer.capacity()) {
+                return false;
+            }
+            checksum.reset();
+            checksum.update(bytes);
+            buffer.putInt(end, bytes.length);
+            buffer.putInt(end + Integer.BYTES, (int) checksum.getValue());
+            buffer.put(end + FRAME_HEADER_SIZE, bytes);
+            index(end);
+            end += frame;
+            return true;
+        }
+
+        private void index(int position) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = position;
+        }
+
+        ByteBuffer record(long offset) {
+            var position = positions[(int) (offset - baseOffset)];
+            return buffer.slice(position + FRAME_HEADER_SIZE, buffer.getInt(position)).asReadOnlyBuffer();
+        }
+
+        void writeHeader() {
+            buffer.putInt(COUNT_OFFSET, count);
+            buffer.putInt(END_OFFSET, end);
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't delete " + file, e);
+            }
+        }
+
+        /**
+         * Must be called after the last {@link #force()}, the buffer is unmapped, so the file can be deleted
+         * (e.g. on Windows) and its pages are returned without waiting for GC
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DirectBuffers.free(buffer);
+            }
+        }
+    }
+}
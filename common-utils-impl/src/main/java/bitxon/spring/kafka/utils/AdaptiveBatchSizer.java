@@ -0,0 +1,239 @@
+package bitxon.spring.kafka.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tunes {@code max.poll.records}, {@code fetch.min.bytes} and {@code fetch.max.wait.ms} of a batch listener container
+ * from what it observes as {@link BatchInterceptor}:
+ * <ul>
+ *     <li>{@code max.poll.records} - as many records as are handled within {@code targetBatchTime}
+ *     (halved while poll-to-poll interval exceeds 4 x {@code targetBatchTime})</li>
+ *     <li>while most batches come full (consumer is behind) - {@code fetch.min.bytes} of a whole batch and
+ *     maximum {@code fetch.max.wait.ms}, otherwise minimum of both to keep latency low</li>
+ * </ul>
+ * Consumer config can't be changed on the fly, so the container is restarted with new values (which rebalances
+ * the group), that's why values are re-evaluated only every {@code adjustInterval} and applied only if they differ
+ * by 25% or more.
+ */
+public class AdaptiveBatchSizer<K, V> implements BatchInterceptor<K, V>, MeterBinder, SmartLifecycle {
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_CHANGE = 0.25;
+
+    private final String name;
+    private final Supplier<MessageListenerContainer> container;
+    private final Settings settings;
+    private final ThreadLocal<Long> batchStart = new ThreadLocal<>();
+    private final AtomicLong lastPollNanos = new AtomicLong();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fullBatches = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    // moving averages, concurrent updates may lose a sample
+    private volatile double recordNanos;
+    private volatile double recordBytes;
+    private volatile double pollIntervalNanos;
+    private volatile int maxPollRecords;
+    private volatile int fetchMinBytes;
+    private volatile int fetchMaxWaitMs;
+    private volatile ScheduledExecutorService scheduler;
+
+    public AdaptiveBatchSizer(String name, Supplier<MessageListenerContainer> container, Settings settings) {
+        this.name = name;
+        this.container = container;
+        this.settings = settings;
+        this.maxPollRecords = settings.initialRecords();
+        this.fetchMinBytes = 1; // consumer defaults until the first adjustment
+        this.fetchMaxWaitMs = 500;
+    }
+
+    @Override
+    public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        var now = System.nanoTime();
+        var previous = lastPollNanos.getAndSet(now);
+        if (previous != 0) {
+            pollIntervalNanos += SMOOTHING * (now - previous - pollIntervalNanos);
+        }
+        long bytes = 0;
+        for (var rec : records) {
+            bytes += Math.max(0, rec.serializedKeySize()) + Math.max(0, rec.serializedValueSize());
+        }
+        if (!records.isEmpty()) {
+            recordBytes += SMOOTHING * ((double) bytes / records.count() - recordBytes);
+        }
+        batchStart.set(now);
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        completed(records);
+    }
+
+    @Override
+    public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+        completed(records);
+    }
+
+    private void completed(ConsumerRecords<K, V> records) {
+        var start = batchStart.get();
+        if (start == null || records.isEmpty()) {
+            return;
+        }
+        batchStart.remove();
+        recordNanos += SMOOTHING * ((double) (System.nanoTime() - start) / records.count() - recordNanos);
+        batches.increment();
+        if (records.count() >= maxPollRecords) {
+            fullBatches.increment();
+        }
+    }
+
+    /**
+     * Re-evaluates values from batches seen since the previous call, restarts the container if they changed enough
+     */
+    void adjust() {
+        var observed = batches.sumThenReset();
+        var full = fullBatches.sumThenReset();
+        if (observed < settings.minBatches() || recordNanos <= 0) {
+            return;
+        }
+        var targetNanos = settings.targetBatchTime().toNanos();
+        var records = clamp((long) (targetNanos / recordNanos), settings.minRecords(), settings.maxRecords());
+        if (pollIntervalNanos > 4.0 * targetNanos) {
+            records = Math.max(settings.minRecords(), records / 2);
+        }
+        var behind = full * 2 >= observed;
+        var minBytes = behind
+            ? clamp((long) (records * recordBytes), settings.minFetchBytes(), settings.maxFetchBytes())
+            : settings.minFetchBytes();
+        var maxWaitMs = (int) (behind ? settings.maxFetchWait() : settings.minFetchWait()).toMillis();
+
+        if (differs(records, maxPollRecords) || differs(minBytes, fetchMinBytes) || maxWaitMs != fetchMaxWaitMs) {
+            apply(records, minBytes, maxWaitMs);
+        }
+    }
+
+    private void apply(int records, int minBytes, int maxWaitMs) {
+        var current = container.get();
+        if (current == null || !current.isRunning()) {
+            return;
+        }
+        var properties = current.getContainerProperties().getKafkaConsumerProperties();
+        properties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(records));
+        properties.setProperty(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(minBytes));
+        properties.setProperty(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, String.valueOf(maxWaitMs));
+        maxPollRecords = records;
+        fetchMinBytes = minBytes;
+        fetchMaxWaitMs = maxWaitMs;
+        restarts.increment();
+        current.stop(current::start); // consumers are recreated with new properties
+    }
+
+    private static boolean differs(int value, int current) {
+        return Math.abs(value - current) >= MIN_CHANGE * current;
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "batch-sizer-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        var interval = settings.adjustInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    public int getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public int getFetchMinBytes() {
+        return fetchMinBytes;
+    }
+
+    public int getFetchMaxWaitMs() {
+        return fetchMaxWaitMs;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("batch.sizing.max-poll-records", this, AdaptiveBatchSizer::getMaxPollRecords)
+            .description("Chosen max.poll.records")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("batch.sizing.fetch-min-bytes", this, AdaptiveBatchSizer::getFetchMinBytes)
+            .description("Chosen fetch.min.bytes")
+            .baseUnit("bytes")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("batch.sizing.fetch-max-wait", this, sizer -> sizer.getFetchMaxWaitMs() / 1000.0)
+            .description("Chosen fetch.max.wait.ms")
+            .baseUnit("seconds")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("batch.sizing.record-time", this, sizer -> sizer.recordNanos / 1e9)
+            .description("Moving average of handling time per record")
+            .baseUnit("seconds")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("batch.sizing.poll-interval", this, sizer -> sizer.pollIntervalNanos / 1e9)
+            .description("Moving average of time between polls")
+            .baseUnit("seconds")
+            .tag("listener", name)
+            .register(registry);
+        FunctionCounter.builder("batch.sizing.restarts", restarts, LongAdder::sum)
+            .description("Container restarts to apply new values")
+            .tag("listener", name)
+            .register(registry);
+    }
+
+    /**
+     * @param initialRecords {@code max.poll.records} the container is configured with
+     * @param minBatches     batches to observe between adjustments, fewer batches keep current values
+     */
+    public record Settings(
+        int initialRecords,
+        int minRecords,
+        int maxRecords,
+        Duration targetBatchTime,
+        int minFetchBytes,
+        int maxFetchBytes,
+        Duration minFetchWait,
+        Duration maxFetchWait,
+        Duration adjustInterval,
+        int minBatches
+    ) {}
+}
@@ -1,22 +1,128 @@
 package bitxon.spring.kafka.utils;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
-public class AttemptTracker<T> {
-    private final AtomicInteger counter = new AtomicInteger();
-    private final ConcurrentHashMap<Integer, T> attempt = new ConcurrentHashMap<>();
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiPredicate;
 
-    public void put(T value) {
-        attempt.put(counter.incrementAndGet(), value);
+/**
+ * Keeps the last {@code capacity} attempts in a lock-free ring buffer, older attempts are overwritten
+ * so tracking can stay on in a long-running process.
+ * <p>
+ * Attempt keeps the handled value and a key that identifies what was handled (e.g. topic, partition and offset of
+ * records, values may repeat), attempt is counted as retry if {@code isRetry(previous, current)} is true for keys of
+ * the previous and the current attempt. {@code attempts} and {@code attempts.retries} counters are exported when
+ * bound to {@link MeterRegistry}.
+ */
+public class AttemptTracker<T, K> implements MeterBinder {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final String name;
+    private final int capacity;
+    private final BiPredicate<K, K> isRetry;
+    private volatile Ring<T, K> ring;
+    private volatile Counter attemptsCounter;
+    private volatile Counter retriesCounter;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public AttemptTracker(String name, int capacity, BiPredicate<K, K> isRetry) {
+        this.name = name;
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.isRetry = isRetry;
+        this.ring = new Ring<>(this.capacity);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        attemptsCounter = Counter.builder("attempts")
+            .description("Handler invocations, including retries")
+            .tag("tracker", name)
+            .register(registry);
+        retriesCounter = Counter.builder("attempts.retries")
+            .description("Handler invocations for keys that were already attempted")
+            .tag("tracker", name)
+            .register(registry);
+    }
+
+    public void put(T value, K key) {
+        var current = ring;
+        var number = current.sequence.incrementAndGet();
+        var attempt = new Attempt<>((int) number, System.currentTimeMillis(), value, key);
+        var index = (int) (number - 1) & (capacity - 1);
+        // a writer that was lapped must not overwrite a newer attempt
+        current.slots.accumulateAndGet(index, attempt, (existing, update) ->
+            existing == null || existing.number() < update.number() ? update : existing);
+
+        if (attemptsCounter != null) {
+            attemptsCounter.increment();
+            var previous = number > 1 ? current.slots.get((int) (number - 2) & (capacity - 1)) : null;
+            if (previous != null && previous.number() == number - 1 && isRetry.test(previous.key(), key)) {
+                retriesCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * @return retained attempts by attempt number (starting from 1)
+     */
+    public Map<Integer, T> getAll() {
+        Map<Integer, T> all = new LinkedHashMap<>();
+        snapshot().forEach(attempt -> all.put(attempt.number(), attempt.value()));
+        return all;
     }
 
-    public ConcurrentHashMap<Integer, T> getAll() {
-        return new ConcurrentHashMap<>(attempt);
+    /**
+     * @return retained attempts from the oldest to the newest
+     */
+    public List<Attempt<T, K>> snapshot() {
+        var current = ring;
+        var last = current.sequence.get();
+        var first = Math.max(1, last - capacity + 1);
+        var attempts = new ArrayList<Attempt<T, K>>((int) (last - first + 1));
+        for (var number = first; number <= last; number++) {
+            var attempt = current.slots.get((int) (number - 1) & (capacity - 1));
+            if (attempt != null && attempt.number() == number) { // skip slots that are overwritten or not yet written
+                attempts.add(attempt);
+            }
+        }
+        return attempts;
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Starts a new buffer, attempts that are in progress may end up in the old one
+     */
     public void clear() {
-        counter.set(0);
-        attempt.clear();
+        ring = new Ring<>(capacity);
+    }
+
+    /**
+     * Batch redelivery starts from the failed record: retry if the first key of the current batch was in the previous one
+     */
+    public static <E> BiPredicate<List<E>, List<E>> batchRedelivery() {
+        return (previous, current) -> !current.isEmpty() && previous.contains(current.get(0));
+    }
+
+    public record Attempt<T, K>(int number, long timestampMillis, T value, K key) {}
+
+    private static final class Ring<T, K> {
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicReferenceArray<Attempt<T, K>> slots;
+
+        private Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
     }
 }
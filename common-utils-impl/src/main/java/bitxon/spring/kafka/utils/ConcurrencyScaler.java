@@ -0,0 +1,337 @@
+package bitxon.spring.kafka.utils;
+
+import bitxon.spring.kafka.metrics.ConsumerLagMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.MemberToRemove;
+import org.apache.kafka.clients.admin.RemoveMembersFromConsumerGroupOptions;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Scales concurrency of a listener container (and its worker pool, if records are processed in parallel within
+ * a partition) from lag of its consumer group reported by {@link ConsumerLagMonitor}:
+ * <ul>
+ *     <li>up - while the backlog would not be drained within {@code targetDrainTime} at the current rate,
+ *     by the ratio of needed rate (produced + lag / {@code targetDrainTime}) to consumed rate</li>
+ *     <li>down - one step while the backlog would be drained within a quarter of {@code targetDrainTime} and
+ *     the most records in flight seen meanwhile would keep at most 3/4 of the smaller pool (or consumers) busy</li>
+ * </ul>
+ * The condition must hold for {@code upIntervals} / {@code downIntervals} evaluations of new lag snapshots in a row
+ * and nothing changes within {@code cooldown} after a change, so a short spike or a rebalance doesn't make it flap.
+ * <p>
+ * Worker pool is resized without touching the consumers, so it grows first (and shrinks last), concurrency changes
+ * only when the pool is at its bound. New concurrency needs a container restart (which rebalances the group),
+ * it never exceeds the number of partitions. Static members ({@code group.instance.id}) don't leave the group when
+ * they stop, so consumers removed by the restart are removed from the group with {@code admin}, otherwise their
+ * partitions would wait for {@code session.timeout.ms}.
+ */
+public class ConcurrencyScaler implements MeterBinder, SmartLifecycle, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyScaler.class);
+    private static final double CALM_FRACTION = 0.25;
+    private static final double DOWN_STEP = 0.25;
+    private static final double DOWN_UTILIZATION = 0.75;
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final String name;
+    private final Supplier<MessageListenerContainer> container;
+    private final ConsumerLagMonitor lagMonitor;
+    private final String group;
+    private final Settings settings;
+    private final Resizable workers;
+    private final IntSupplier inFlight;
+    private final Admin admin;
+    private volatile int concurrency;
+    private volatile int workerCount;
+    private int behindIntervals;
+    private int calmIntervals;
+    private int peakInFlight;
+    private boolean measured;
+    private long lastPolledAtMillis;
+    private long lastPosition;
+    private long lastEndOffset;
+    private long cooldownUntilNanos;
+    private volatile Counter scaledUp;
+    private volatile Counter scaledDown;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param workers  worker pool of the listener, {@code null} if records are processed on the consumer thread
+     * @param inFlight records handed to the listener and not completed yet (processed or waiting for a worker)
+     * @param admin    removes static members, closed with the scaler
+     */
+    public ConcurrencyScaler(String name, Supplier<MessageListenerContainer> container, ConsumerLagMonitor lagMonitor,
+                             String group, Settings settings, Resizable workers, IntSupplier inFlight, Admin admin) {
+        this.name = name;
+        this.container = container;
+        this.lagMonitor = lagMonitor;
+        this.group = group;
+        this.settings = settings;
+        this.workers = workers;
+        this.inFlight = inFlight;
+        this.admin = admin;
+        this.workerCount = workers == null ? 0 : workers.size();
+    }
+
+    /**
+     * Compares rates since the previous lag snapshot, applies new sizes if they are needed long enough
+     */
+    synchronized void evaluate() {
+        if (!(container.get() instanceof ConcurrentMessageListenerContainer<?, ?> current) || !current.isRunning()) {
+            return;
+        }
+        concurrency = current.getConcurrency();
+        var polledAt = lagMonitor.getPolledAtMillis();
+        if (polledAt == lastPolledAtMillis) {
+            return; // no new snapshot (or none yet), it would count as one more interval of the same lag
+        }
+        var topics = current.getContainerProperties().getTopics();
+        if (topics == null) {
+            return; // pattern or explicit partitions, lag of the group can't be attributed to the container
+        }
+        var consumed = Set.of(topics);
+        var lags = lagMonitor.getLags(group).stream()
+            .filter(lag -> consumed.contains(lag.partition().topic()))
+            .toList();
+        if (lags.isEmpty()) {
+            return;
+        }
+        long lag = 0;
+        long endOffset = 0;
+        for (var partitionLag : lags) {
+            lag += partitionLag.lag();
+            endOffset += partitionLag.endOffset();
+        }
+        var position = endOffset - lag;
+
+        var seconds = (polledAt - lastPolledAtMillis) / 1e3;
+        var consumedRate = Math.max(0, (position - lastPosition) / seconds);
+        var producedRate = Math.max(0, (endOffset - lastEndOffset) / seconds);
+        var rated = measured;
+        measured = true;
+        lastPolledAtMillis = polledAt;
+        lastPosition = position;
+        lastEndOffset = endOffset;
+        if (!rated || System.nanoTime() < cooldownUntilNanos) {
+            return; // rates are measured from the next snapshot
+        }
+
+        var target = settings.targetDrainTime().toNanos() / 1e9;
+        var drainRate = consumedRate - producedRate;
+        var drainSeconds = lag == 0 ? 0 : drainRate <= 0 ? Double.POSITIVE_INFINITY : lag / drainRate;
+        if (drainSeconds > target) {
+            calmIntervals = 0;
+            if (++behindIntervals >= settings.upIntervals()) {
+                var needed = producedRate + lag / target;
+                scaleUp(current, consumedRate > 0 ? needed / consumedRate : 2, lags.size());
+            }
+        } else if (drainSeconds < CALM_FRACTION * target) {
+            behindIntervals = 0;
+            peakInFlight = calmIntervals == 0 ? inFlight.getAsInt() : Math.max(peakInFlight, inFlight.getAsInt());
+            if (++calmIntervals >= settings.downIntervals() && !scaleDown(current)) {
+                calmIntervals = 0; // still busy, the next attempt needs a new run of calm intervals
+            }
+        } else {
+            behindIntervals = 0;
+            calmIntervals = 0;
+        }
+    }
+
+    private void scaleUp(ConcurrentMessageListenerContainer<?, ?> current, double ratio, int partitions) {
+        if (workers != null && workerCount < settings.maxWorkers()) {
+            resizeWorkers(clamp(Math.max(workerCount + 1, (long) Math.ceil(workerCount * ratio)),
+                settings.minWorkers(), settings.maxWorkers()));
+            changed(scaledUp);
+            return;
+        }
+        var max = Math.min(settings.maxConcurrency(), partitions); // extra consumers would stay idle
+        if (concurrency < max) {
+            restart(current, clamp(Math.max(concurrency + 1, (long) Math.ceil(concurrency * ratio)),
+                settings.minConcurrency(), max));
+            changed(scaledUp);
+        }
+    }
+
+    /**
+     * @return false if there is nothing to remove or the rest would be too busy
+     */
+    private boolean scaleDown(ConcurrentMessageListenerContainer<?, ?> current) {
+        if (concurrency > settings.minConcurrency() && fits(workers != null ? workerCount : concurrency - 1)) {
+            restart(current, concurrency - 1); // with workers, consumers only dispatch records to them
+            changed(scaledDown);
+            return true;
+        }
+        if (workers != null && workerCount > settings.minWorkers()) {
+            var size = clamp(Math.min(workerCount - 1, (long) (workerCount * (1 - DOWN_STEP))),
+                settings.minWorkers(), settings.maxWorkers());
+            if (fits(size)) {
+                resizeWorkers(size);
+                changed(scaledDown);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean fits(int size) {
+        return peakInFlight <= DOWN_UTILIZATION * size;
+    }
+
+    private void resizeWorkers(int size) {
+        workers.resize(size);
+        workerCount = size;
+    }
+
+    private void restart(ConcurrentMessageListenerContainer<?, ?> current, int size) {
+        var previous = concurrency;
+        concurrency = size;
+        current.stop(() -> { // consumers are recreated with new concurrency
+            removeStaticMembers(current, size, previous);
+            current.setConcurrency(size);
+            current.start();
+        });
+    }
+
+    /**
+     * Consumer {@code i} of the container joins as {@code <group.instance.id>-<i>}, consumers from {@code size}
+     * on are not started again
+     */
+    private void removeStaticMembers(ConcurrentMessageListenerContainer<?, ?> current, int size, int previous) {
+        var instanceId = current.getContainerProperties().getKafkaConsumerProperties()
+            .getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG); // set by container customizer
+        if (instanceId == null || instanceId.isBlank() || size >= previous) {
+            return;
+        }
+        var removed = IntStream.range(size, previous)
+            .mapToObj(index -> new MemberToRemove(instanceId + "-" + index))
+            .toList();
+        try {
+            admin.removeMembersFromConsumerGroup(group, new RemoveMembersFromConsumerGroupOptions(removed))
+                .all().get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Static members {} are not removed from group {}, their partitions wait for session timeout",
+                removed, group, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void changed(Counter counter) {
+        behindIntervals = 0;
+        calmIntervals = 0;
+        measured = false; // rates from before the change don't tell anything about the new size
+        cooldownUntilNanos = System.nanoTime() + settings.cooldown().toNanos();
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "concurrency-scaler-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        var interval = settings.interval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::evaluate, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+        admin.close(ADMIN_TIMEOUT);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getWorkers() {
+        return workerCount;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("scaling.concurrency", this, ConcurrencyScaler::getConcurrency)
+            .description("Consumers of the listener container")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("scaling.workers", this, ConcurrencyScaler::getWorkers)
+            .description("Workers processing records of the listener")
+            .tag("listener", name)
+            .register(registry);
+        scaledUp = Counter.builder("scaling.changes")
+            .description("Changes of concurrency or workers")
+            .tag("listener", name)
+            .tag("direction", "up")
+            .register(registry);
+        scaledDown = Counter.builder("scaling.changes")
+            .description("Changes of concurrency or workers")
+            .tag("listener", name)
+            .tag("direction", "down")
+            .register(registry);
+    }
+
+    /**
+     * Worker pool that can be resized at runtime
+     */
+    public interface Resizable {
+        int size();
+
+        void resize(int size);
+    }
+
+    /**
+     * @param interval      between evaluations, an evaluation is skipped if {@link ConsumerLagMonitor} hasn't polled since
+     * @param upIntervals   evaluations in a row behind the target before scaling up
+     * @param downIntervals evaluations in a row well within the target before scaling down
+     * @param cooldown      after a change, lets the group rebalance and rates settle
+     */
+    public record Settings(
+        int minConcurrency,
+        int maxConcurrency,
+        int minWorkers,
+        int maxWorkers,
+        Duration targetDrainTime,
+        Duration interval,
+        int upIntervals,
+        int downIntervals,
+        Duration cooldown
+    ) {}
+}
@@ -0,0 +1,69 @@
+package bitxon.spring.kafka.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a shared {@link Executor} but keeps tasks with the same key in submission order.
+ * <p>
+ * Every key has a "tail" future, a new task replaces it and starts once the previous tail completes, so tasks with
+ * different keys run in parallel while tasks with the same key never overlap. Tasks with {@code null} key have
+ * no ordering guarantee.
+ * <p>
+ * Tasks are never started inside of the map's lock, so a synchronous executor (task runs on the caller thread)
+ * doesn't block callers with other keys and a task may submit further tasks.
+ */
+public class KeyOrderedExecutor {
+    private final Executor executor;
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public KeyOrderedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> execute(Object key, Runnable task) {
+        inFlight.incrementAndGet();
+        var future = new CompletableFuture<Void>();
+        if (key == null) {
+            start(task, future);
+            return future.whenComplete((__, ex) -> inFlight.decrementAndGet());
+        }
+
+        var tail = tails.put(key, future); // only swaps the tail, the task is started outside of the map
+        if (tail == null) {
+            start(task, future);
+        } else {
+            tail.whenComplete((__, ex) -> start(task, future));
+        }
+        return future.whenComplete((__, ex) -> {
+            tails.remove(key, future); // only if nothing was chained after it
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void start(Runnable task, CompletableFuture<Void> future) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    future.complete(null);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) { // rejected, tasks chained after it must not wait forever
+            future.completeExceptionally(e);
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+}
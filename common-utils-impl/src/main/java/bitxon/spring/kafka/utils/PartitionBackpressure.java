@@ -0,0 +1,156 @@
+package bitxon.spring.kafka.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pauses partitions of a container whose records are handed off to other threads, so the consumer keeps polling
+ * (no {@code max.poll.interval.ms} rebalance) but does not fetch more than downstream can take:
+ * <ul>
+ *     <li>partition is paused when it has {@code maxInFlightPerPartition} records in flight
+ *     (half of it while average handling latency is above {@code latencyThreshold})</li>
+ *     <li>partition is paused when all partitions together have {@code maxInFlight} records in flight</li>
+ *     <li>paused partition is resumed when both counts drop to half of their limit</li>
+ * </ul>
+ * Records of the current poll are still delivered after pause, so in-flight count may exceed limits by
+ * {@code max.poll.records}.
+ */
+public class PartitionBackpressure implements MeterBinder {
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String name;
+    private final Supplier<MessageListenerContainer> container;
+    private final int maxInFlightPerPartition;
+    private final int maxInFlight;
+    private final long latencyThresholdNanos;
+    private final ConcurrentHashMap<TopicPartition, AtomicInteger> inFlightByPartition = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<TopicPartition> paused = ConcurrentHashMap.newKeySet();
+    private final LongAdder pauses = new LongAdder();
+    private volatile double latencyNanos; // moving average, concurrent updates may lose a sample
+
+    /**
+     * @param container resolved lazily, containers are created after listener beans
+     */
+    public PartitionBackpressure(String name, Supplier<MessageListenerContainer> container,
+                                 int maxInFlightPerPartition, int maxInFlight, Duration latencyThreshold) {
+        this.name = name;
+        this.container = container;
+        this.maxInFlightPerPartition = maxInFlightPerPartition;
+        this.maxInFlight = maxInFlight;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+    }
+
+    /**
+     * Called on the consumer thread before the record is handed off
+     */
+    public Permit acquire(String topic, int partition) {
+        var topicPartition = new TopicPartition(topic, partition);
+        var partitionInFlight = inFlightByPartition.computeIfAbsent(topicPartition, __ -> new AtomicInteger()).incrementAndGet();
+        var totalInFlight = inFlight.incrementAndGet();
+        if (partitionInFlight >= partitionLimit() || totalInFlight >= maxInFlight) {
+            pause(topicPartition);
+        }
+        return new Permit(topicPartition, System.nanoTime());
+    }
+
+    private void release(Permit permit) {
+        var latency = System.nanoTime() - permit.startNanos;
+        latencyNanos += LATENCY_SMOOTHING * (latency - latencyNanos);
+        inFlightByPartition.get(permit.topicPartition).decrementAndGet();
+        inFlight.decrementAndGet();
+        if (!paused.isEmpty()) {
+            resumeDrained();
+        }
+    }
+
+    private synchronized void pause(TopicPartition topicPartition) {
+        if (paused.add(topicPartition)) {
+            container.get().pausePartition(topicPartition);
+            pauses.increment();
+        }
+    }
+
+    private synchronized void resumeDrained() {
+        if (inFlight.get() > maxInFlight / 2) {
+            return;
+        }
+        var partitionLimit = partitionLimit();
+        for (var topicPartition : paused) {
+            if (inFlightByPartition.get(topicPartition).get() <= partitionLimit / 2) {
+                paused.remove(topicPartition);
+                container.get().resumePartition(topicPartition);
+            }
+        }
+    }
+
+    private int partitionLimit() {
+        return latencyNanos > latencyThresholdNanos ? Math.max(1, maxInFlightPerPartition / 2) : maxInFlightPerPartition;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getInFlight(TopicPartition topicPartition) {
+        var partitionInFlight = inFlightByPartition.get(topicPartition);
+        return partitionInFlight == null ? 0 : partitionInFlight.get();
+    }
+
+    public long getPauses() {
+        return pauses.sum();
+    }
+
+    public Set<TopicPartition> getPaused() {
+        return Set.copyOf(paused);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("backpressure.in-flight", inFlight, AtomicInteger::get)
+            .description("Records handed off and not yet completed")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("backpressure.paused.partitions", paused, Set::size)
+            .description("Partitions paused because of in-flight records or latency")
+            .tag("listener", name)
+            .register(registry);
+        Gauge.builder("backpressure.latency", this, backpressure -> backpressure.latencyNanos / 1e9)
+            .description("Moving average of handling latency")
+            .baseUnit("seconds")
+            .tag("listener", name)
+            .register(registry);
+        FunctionCounter.builder("backpressure.pauses", pauses, LongAdder::sum)
+            .description("Times a partition was paused")
+            .tag("listener", name)
+            .register(registry);
+    }
+
+    /**
+     * Must be released exactly once, when the record is completed (successfully or not)
+     */
+    public final class Permit {
+        private final TopicPartition topicPartition;
+        private final long startNanos;
+
+        private Permit(TopicPartition topicPartition, long startNanos) {
+            this.topicPartition = topicPartition;
+            this.startNanos = startNanos;
+        }
+
+        public void release() {
+            PartitionBackpressure.this.release(this);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bitxon.spring.kafka.utils;
+
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Starts one virtual thread per task, at most {@code limit} of them run their task at once.
+ * <p>
+ * The permit is taken by the task on its own thread, so {@link #execute} never blocks the submitter: a worker that
+ * submits the next task of a key (see {@link KeyOrderedExecutor}) while it still holds its permit can't deadlock,
+ * and neither can the consumer thread. Tasks still waiting for a permit are dropped on {@link #close()}.
+ */
+public class VirtualThreadTaskExecutor implements TaskExecutor, ConcurrencyScaler.Resizable, AutoCloseable {
+    private final ExecutorService executor;
+    private final ResizableSemaphore permits;
+    private volatile int limit;
+
+    public VirtualThreadTaskExecutor(String threadNamePrefix, int limit) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        this.permits = new ResizableSemaphore(limit);
+        this.limit = limit;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return; // closed
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        return limit;
+    }
+
+    /**
+     * Running tasks are not interrupted, a smaller limit applies once enough of them finished
+     */
+    @Override
+    public synchronized void resize(int size) {
+        var delta = size - limit;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        limit = size;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class ResizableSemaphore extends Semaphore {
+        private ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
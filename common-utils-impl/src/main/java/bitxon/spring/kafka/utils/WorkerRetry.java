@@ -0,0 +1,73 @@
+package bitxon.spring.kafka.utils;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.List;
+
+/**
+ * Retries a record processed by a worker, off the consumer thread, where the container's error handler never sees
+ * its failure: attempts are spaced by the error handler's {@link BackOff}, then the record is given to the same
+ * {@link ConsumerRecordRecoverer}. Exceptions of {@code notRetryable} types (or caused by them) are recovered right away.
+ * <p>
+ * Runs on the worker thread, so later records with the same key (see {@link KeyOrderedExecutor}) wait for it.
+ */
+public class WorkerRetry {
+    private final BackOff backOff;
+    private final ConsumerRecordRecoverer recoverer;
+    private final List<Class<? extends Throwable>> notRetryable;
+
+    @SafeVarargs
+    public WorkerRetry(BackOff backOff, ConsumerRecordRecoverer recoverer,
+                       Class<? extends Throwable>... notRetryable) {
+        this.backOff = backOff;
+        this.recoverer = recoverer;
+        this.notRetryable = List.of(notRetryable);
+    }
+
+    /**
+     * @throws RuntimeException of the recoverer, the record is neither processed nor recovered
+     */
+    public void run(ConsumerRecord<?, ?> rec, Runnable task) {
+        BackOffExecution execution = null;
+        while (true) {
+            try {
+                task.run();
+                return;
+            } catch (RuntimeException e) {
+                if (execution == null) {
+                    execution = backOff.start();
+                }
+                var delay = isRetryable(e) ? execution.nextBackOff() : BackOffExecution.STOP;
+                if (delay == BackOffExecution.STOP) {
+                    recoverer.accept(rec, e);
+                    return;
+                }
+                sleep(delay, e);
+            }
+        }
+    }
+
+    private boolean isRetryable(Throwable exception) {
+        for (var cause = exception; cause != null; cause = cause.getCause()) {
+            for (var type : notRetryable) {
+                if (type.isInstance(cause)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void sleep(long delay, RuntimeException failure) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) { // shutting down, the record is not acknowledged and comes again
+            Thread.currentThread().interrupt();
+            failure.addSuppressed(e);
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package bitxon.spring.kafka.validation;
+
+/**
+ * Checks used by generated validators, same semantics as Hibernate Validator implementations
+ */
+public final class Constraints {
+
+    private Constraints() {
+    }
+
+    /**
+     * {@code @NotBlank}: not {@code null} and contains at least one character greater than space
+     * (Hibernate Validator trims such characters)
+     */
+    public static boolean notBlank(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
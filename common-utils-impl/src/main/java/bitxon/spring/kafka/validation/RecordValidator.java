@@ -0,0 +1,44 @@
+package bitxon.spring.kafka.validation;
+
+/**
+ * Validator of one record type, generated at compile time from its {@code jakarta.validation} constraints
+ * (see {@code validation-processor} module), so no metadata is resolved via reflection at runtime.
+ * <p>
+ * Valid values are checked without allocations, violations are reported to {@link ViolationHandler}.
+ */
+public interface RecordValidator<T> {
+    ViolationHandler IGNORE = (field, constraint, message, invalidValue) -> {};
+
+    Class<T> getType();
+
+    /**
+     * @return number of violations, every violation is passed to {@code violations}
+     */
+    int validate(T value, ViolationHandler violations);
+
+    default boolean isValid(T value) {
+        return validate(value, IGNORE) == 0;
+    }
+
+    /**
+     * @return {@code null} if value is valid, otherwise violations in {@code "<field> <message>, ..."} form
+     */
+    default String describeViolations(T value) {
+        if (isValid(value)) {
+            return null;
+        }
+        var description = new StringBuilder();
+        validate(value, (field, constraint, message, invalidValue) -> {
+            if (!description.isEmpty()) {
+                description.append(", ");
+            }
+            description.append(field).append(' ').append(message);
+        });
+        return description.toString();
+    }
+
+    @FunctionalInterface
+    interface ViolationHandler {
+        void violation(String field, String constraint, String message, Object invalidValue);
+    }
+}
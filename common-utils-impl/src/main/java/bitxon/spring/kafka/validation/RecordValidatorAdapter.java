@@ -0,0 +1,44 @@
+package bitxon.spring.kafka.validation;
+
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
+
+/**
+ * Spring {@link Validator} backed by {@link RecordValidators generated validators},
+ * types without generated validator are passed to {@code fallback} (e.g. Hibernate Validator)
+ */
+public class RecordValidatorAdapter implements Validator {
+    private final Validator fallback;
+
+    public RecordValidatorAdapter(Validator fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return RecordValidators.find(clazz) != null || fallback.supports(clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void validate(Object target, Errors errors) {
+        var validator = (RecordValidator<Object>) RecordValidators.find(target.getClass());
+        if (validator == null) {
+            fallback.validate(target, errors);
+            return;
+        }
+        if (validator.isValid(target)) {
+            return; // no handler is created on the success path
+        }
+        validator.validate(target, (field, constraint, message, invalidValue) -> {
+            if (errors instanceof BindingResult bindingResult) { // records have no getters, don't read value via bean wrapper
+                bindingResult.addError(new FieldError(errors.getObjectName(), field, invalidValue, false,
+                    bindingResult.resolveMessageCodes(constraint, field), null, message));
+            } else {
+                errors.reject(constraint, field + " " + message);
+            }
+        });
+    }
+}
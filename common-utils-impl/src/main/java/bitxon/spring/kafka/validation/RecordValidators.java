@@ -0,0 +1,31 @@
+package bitxon.spring.kafka.validation;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+/**
+ * Generated validators found on the classpath, they are listed in
+ * {@code META-INF/services/bitxon.spring.kafka.validation.RecordValidator} by the annotation processor
+ */
+public final class RecordValidators {
+    private static final Map<Class<?>, RecordValidator<?>> VALIDATORS =
+        ServiceLoader.load(RecordValidator.class, RecordValidators.class.getClassLoader()).stream()
+            .map(ServiceLoader.Provider::get)
+            .collect(Collectors.toUnmodifiableMap(RecordValidator::getType, validator -> (RecordValidator<?>) validator));
+
+    private RecordValidators() {
+    }
+
+    /**
+     * @return generated validator or {@code null} if {@code type} has none
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RecordValidator<T> find(Class<T> type) {
+        return (RecordValidator<T>) VALIDATORS.get(type);
+    }
+
+    public static Map<Class<?>, RecordValidator<?>> getAll() {
+        return VALIDATORS;
+    }
+}
@@ -0,0 +1,7 @@
+package bitxon.spring.kafka.store;
+
+/**
+ * Public, {@link bitxon.spring.kafka.codec.BinaryCodec} encodes public records only
+ */
+public record Item(String name, int number) {
+}
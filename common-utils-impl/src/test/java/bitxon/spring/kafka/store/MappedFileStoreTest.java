@@ -0,0 +1,77 @@
+package bitxon.spring.kafka.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileStoreTest {
+    private static final int CAPACITY = 512;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresRecordsAfterRestart() {
+        var file = directory.resolve("item.store");
+        var items = IntStream.range(0, 100).mapToObj(i -> new Item("item-" + i, i)).toList();
+        List<Item> retained;
+        long dropped;
+        try (var store = new MappedFileStore<>(Item.class, file, CAPACITY)) {
+            items.forEach(store::add);
+            store.poll();
+            retained = store.stream().toList();
+            dropped = store.getDropped();
+        }
+
+        try (var store = new MappedFileStore<>(Item.class, file, CAPACITY)) {
+            assertEquals(retained, store.stream().toList());
+            assertEquals(dropped, store.getDropped());
+            store.add(new Item("next", 100));
+            assertEquals(new Item("next", 100), store.stream().reduce((first, second) -> second).orElseThrow());
+        }
+    }
+
+    @Test
+    void failsOnHeaderOutOfRange() throws Exception {
+        var file = directory.resolve("item.store");
+        try (var store = new MappedFileStore<>(Item.class, file, CAPACITY)) {
+            store.add(new Item("a", 1));
+        }
+        try (var raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(12); // tail
+            raw.writeInt(CAPACITY + 1);
+        }
+
+        assertThrows(IllegalStateException.class, () -> new MappedFileStore<>(Item.class, file, CAPACITY));
+    }
+
+    @Test
+    void failsOnCountNotMatchingRecords() throws Exception {
+        var file = directory.resolve("item.store");
+        try (var store = new MappedFileStore<>(Item.class, file, CAPACITY)) {
+            store.addAll(List.of(new Item("a", 1), new Item("b", 2)));
+        }
+        try (var raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(16); // count
+            raw.writeInt(3);
+        }
+
+        assertThrows(IllegalStateException.class, () -> new MappedFileStore<>(Item.class, file, CAPACITY));
+    }
+
+    @Test
+    void failsAfterClose() {
+        var store = new MappedFileStore<>(Item.class, directory.resolve("item.store"), CAPACITY);
+
+        store.close();
+
+        assertThrows(IllegalStateException.class, store::iterator);
+    }
+}
@@ -0,0 +1,75 @@
+package bitxon.spring.kafka.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapStoreTest {
+    private final OffHeapStore<Item> store = new OffHeapStore<>(Item.class, 512);
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    void pollsInOrder() {
+        store.addAll(List.of(new Item("a", 1), new Item("b", 2)));
+
+        assertEquals(new Item("a", 1), store.poll());
+        assertEquals(new Item("b", 2), store.poll());
+        assertNull(store.poll());
+    }
+
+    @Test
+    void compactionDropsOldestRecords() {
+        var items = IntStream.range(0, 100).mapToObj(i -> new Item("item-" + i, i)).toList();
+
+        items.forEach(store::add);
+
+        var retained = store.stream().toList();
+        assertTrue(retained.size() < items.size());
+        assertEquals(items.subList(items.size() - retained.size(), items.size()), retained);
+        assertEquals(items.size() - retained.size(), store.getDropped());
+    }
+
+    @Test
+    void compactionKeepsPolledRecordsOut() {
+        IntStream.range(0, 10).forEach(i -> store.add(new Item("item-" + i, i)));
+        IntStream.range(0, 5).forEach(i -> store.poll());
+
+        IntStream.range(10, 100).forEach(i -> store.add(new Item("item-" + i, i)));
+
+        assertEquals(99, store.stream().reduce((first, second) -> second).orElseThrow().number());
+        assertEquals(95 - store.size(), store.getDropped());
+    }
+
+    @Test
+    void rejectsRecordLargerThanCapacity() {
+        var item = new Item("x".repeat(512), 1);
+
+        assertThrows(IllegalArgumentException.class, () -> store.add(item));
+    }
+
+    @Test
+    void rejectsCapacityOfHeaderOnly() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapStore<>(Item.class, BufferStore.HEADER_SIZE));
+    }
+
+    @Test
+    void failsAfterClose() {
+        store.add(new Item("a", 1));
+
+        store.close();
+
+        assertThrows(IllegalStateException.class, store::poll);
+        assertThrows(IllegalStateException.class, () -> store.add(new Item("b", 2)));
+    }
+}
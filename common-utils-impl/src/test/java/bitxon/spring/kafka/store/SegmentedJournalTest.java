@@ -0,0 +1,156 @@
+package bitxon.spring.kafka.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedJournalTest {
+    private static final int SEGMENT_BYTES = 256;
+    private static final int END_OFFSET = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsSegments() throws IOException {
+        var items = items(0, 30);
+
+        try (var journal = journal(10)) {
+            items.forEach(journal::add);
+
+            assertTrue(segments().size() > 1);
+            assertEquals(0, journal.getStartOffset());
+            assertEquals(items.size(), journal.getEndOffset());
+            assertEquals(items, journal.read(0, items.size()));
+        }
+    }
+
+    @Test
+    void deletesOldestSegments() throws IOException {
+        var items = items(0, 100);
+
+        try (var journal = journal(2)) {
+            items.forEach(journal::add);
+
+            var start = (int) journal.getStartOffset();
+            assertEquals(2, segments().size());
+            assertTrue(start > 0);
+            assertEquals(start, journal.getDropped());
+            assertEquals(items.subList(start, items.size()), journal.stream().toList());
+        }
+    }
+
+    @Test
+    void restoresRecordsAfterRestart() {
+        var items = items(0, 30);
+        try (var journal = journal(10)) {
+            journal.addAll(items);
+        }
+
+        try (var journal = journal(10)) {
+            assertEquals(items, journal.stream().toList());
+            assertEquals(30, journal.append(List.of(new Item("next", 30))));
+        }
+    }
+
+    @Test
+    void truncatesRecordOfLastSegmentWithChecksumMismatch() throws IOException {
+        var items = items(0, 3);
+        try (var journal = journal(10)) {
+            journal.addAll(items);
+        }
+        var segment = segments().get(0);
+        try (var raw = new RandomAccessFile(segment.toFile(), "rw")) {
+            raw.seek(END_OFFSET);
+            flip(raw, raw.readInt() - 1); // last byte of the last record
+        }
+
+        try (var journal = journal(10)) {
+            assertEquals(items.subList(0, 2), journal.stream().toList());
+            assertEquals(2, journal.append(List.of(new Item("next", 2))));
+        }
+    }
+
+    @Test
+    void truncatesTornBatchOfLastSegment() throws IOException {
+        var items = items(0, 3);
+        try (var journal = journal(10)) {
+            journal.addAll(items);
+        }
+        var segment = segments().get(0);
+        try (var raw = new RandomAccessFile(segment.toFile(), "rw")) { // header written, records of the batch were not
+            raw.seek(END_OFFSET - Integer.BYTES);
+            raw.writeInt(5); // count
+            raw.writeInt(SEGMENT_BYTES - 1); // end
+        }
+
+        try (var journal = journal(10)) {
+            assertEquals(items, journal.stream().toList());
+            assertEquals(3, journal.getEndOffset());
+        }
+    }
+
+    @Test
+    void startsLastSegmentWithoutHeaderEmpty() throws IOException {
+        var items = items(0, 30);
+        try (var journal = journal(10)) {
+            journal.addAll(items);
+        }
+        var segments = segments();
+        var last = segments.get(segments.size() - 1);
+        try (var raw = new RandomAccessFile(last.toFile(), "rw")) {
+            raw.write(new byte[SegmentedJournal.HEADER_SIZE]);
+        }
+
+        try (var journal = journal(10)) {
+            var end = (int) journal.getEndOffset();
+            assertEquals(Long.parseLong(last.getFileName().toString().replace(".log", "")), end);
+            assertEquals(items.subList(0, end), journal.stream().toList());
+        }
+    }
+
+    @Test
+    void failsOnChecksumMismatchOfSealedSegment() throws IOException {
+        try (var journal = journal(10)) {
+            journal.addAll(items(0, 30));
+        }
+        var first = segments().get(0);
+        try (var raw = new RandomAccessFile(first.toFile(), "rw")) {
+            flip(raw, SegmentedJournal.HEADER_SIZE + SegmentedJournal.FRAME_HEADER_SIZE);
+        }
+
+        assertThrows(IllegalStateException.class, () -> journal(10));
+    }
+
+    private SegmentedJournal<Item> journal(int maxSegments) {
+        return new SegmentedJournal<>(Item.class, directory, SEGMENT_BYTES, maxSegments, Duration.ZERO);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static void flip(RandomAccessFile raw, long position) throws IOException {
+        raw.seek(position);
+        var value = raw.read();
+        raw.seek(position);
+        raw.write(value ^ 0xFF);
+    }
+
+    private static List<Item> items(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new Item("item-" + i, i)).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package bitxon.spring.kafka.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyOrderedExecutorTest {
+    private static final Executor SYNC = Runnable::run; // as SyncTaskExecutor of 'workers: 0'
+
+    @Test
+    void synchronousTaskDoesNotBlockOtherKeys() throws Exception {
+        var executor = new KeyOrderedExecutor(SYNC);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var blocked = CompletableFuture.runAsync(() -> executor.execute("Aa", () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var other = CompletableFuture.runAsync(() -> executor.execute("BB", () -> {})); // same hash code as "Aa"
+
+        other.get(5, TimeUnit.SECONDS);
+        assertFalse(blocked.isDone());
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void synchronousTaskMaySubmitTasks() {
+        var executor = new KeyOrderedExecutor(SYNC);
+        var done = new ArrayList<String>();
+
+        executor.execute("Aa", () -> {
+            executor.execute("BB", () -> done.add("BB"));
+            executor.execute("Aa", () -> done.add("Aa, chained"));
+            done.add("Aa");
+        }).join();
+
+        assertEquals(List.of("BB", "Aa", "Aa, chained"), done);
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void tasksWithSameKeyKeepOrder() {
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            var executor = new KeyOrderedExecutor(pool);
+            var last = new AtomicInteger[4];
+            for (int key = 0; key < last.length; key++) {
+                last[key] = new AtomicInteger(-1);
+            }
+            var outOfOrder = new AtomicInteger();
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < 1_000; i++) {
+                var key = i % last.length;
+                var sequence = i;
+                futures.add(executor.execute(key, () -> {
+                    if (last[key].getAndSet(sequence) > sequence) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    if (sequence % 7 == 0) {
+                        throw new IllegalStateException("failed task must not stop the following ones");
+                    }
+                }));
+            }
+            futures.forEach(future -> future.handle((__, ex) -> null).join());
+
+            assertEquals(0, outOfOrder.get());
+            assertEquals(0, executor.getInFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package bitxon.spring.kafka.utils;
+
+import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkerRetryTest {
+    private static final ConsumerRecord<String, String> RECORD = new ConsumerRecord<>("order", 0, 42, "key", "value");
+
+    private final ArrayList<Exception> recovered = new ArrayList<>();
+    private final WorkerRetry retry = new WorkerRetry(new FixedBackOff(1, 2), (rec, exception) -> recovered.add(exception),
+        CustomNonRetryableException.class);
+
+    @Test
+    void succeedsAfterRetry() {
+        var attempts = new AtomicInteger();
+
+        retry.run(RECORD, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("failed");
+            }
+        });
+
+        assertEquals(3, attempts.get());
+        assertTrue(recovered.isEmpty());
+    }
+
+    @Test
+    void recoversAfterLastAttempt() {
+        var attempts = new AtomicInteger();
+
+        retry.run(RECORD, () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("failed");
+        });
+
+        assertEquals(3, attempts.get()); // first one + 2 retries
+        assertEquals(1, recovered.size());
+    }
+
+    @Test
+    void recoversNotRetryableRightAway() {
+        var attempts = new AtomicInteger();
+
+        retry.run(RECORD, () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException(new CustomNonRetryableException("invalid"));
+        });
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, recovered.size());
+    }
+
+    @Test
+    void failsIfRecovererFails() {
+        var failing = new WorkerRetry(new FixedBackOff(1, 0), (rec, exception) -> {
+            throw new IllegalStateException("dead letter not sent");
+        });
+
+        assertThrows(IllegalStateException.class, () -> failing.run(RECORD, () -> {
+            throw new IllegalArgumentException("failed");
+        }));
+    }
+}
@@ -0,0 +1,157 @@
+package bitxon.spring.kafka.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Sends records at {@link LoadProfile#rate()} and measures end-to-end latency: from the moment a record is handed to
+ * the producer until its message shows up among processed ones.
+ * <p>
+ * Successful records carry {@code load-<seq>-<padding>} message, failing ones carry {@code failMessage} or
+ * {@code failRetryMessage} as is (they are not expected to be processed and are not measured).
+ */
+public class LoadHarness {
+    private static final String PREFIX = "load-";
+    private static final long NOT_SENT = 0;
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100); // resolution of measured latency when idle
+
+    private final LoadProfile profile;
+    private final String failMessage;
+    private final String failRetryMessage;
+
+    public LoadHarness(LoadProfile profile, String failMessage, String failRetryMessage) {
+        this.profile = profile;
+        this.failMessage = failMessage;
+        this.failRetryMessage = failRetryMessage;
+    }
+
+    @FunctionalInterface
+    public interface Sender {
+        void send(String key, String message);
+    }
+
+    /**
+     * @param sender    publishes one record, must not block on broker acknowledgement
+     * @param processed returns next processed message or {@code null} if there is none yet, then it is polled again
+     *                  after 100 microseconds, so the measuring thread doesn't take a core from the listener
+     */
+    public LoadReport run(String name, Sender sender, Supplier<String> processed) {
+        var sentAt = new AtomicLongArray(profile.records());
+        var expected = new AtomicLong();
+        var histogram = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+
+        var generator = Thread.ofPlatform().name("load-generator").start(() -> generate(sender, sentAt, expected));
+
+        var start = System.nanoTime();
+        var deadline = start + profile.timeout().toNanos();
+        long completed = 0;
+        long lastCompletion = start;
+        while ((generator.isAlive() || completed < expected.get()) && System.nanoTime() < deadline) {
+            var message = processed.get();
+            if (message == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            var seq = parseSeq(message);
+            var sent = seq < 0 || seq >= profile.records() ? NOT_SENT : sentAt.getAndSet(seq, NOT_SENT);
+            if (sent == NOT_SENT) {
+                continue; // not generated by this run or redelivered
+            }
+            lastCompletion = System.nanoTime();
+            histogram.recordValue(Math.min(lastCompletion - sent, HIGHEST_TRACKABLE_NANOS));
+            completed++;
+        }
+        generator.interrupt();
+
+        return new LoadReport(name, profile, histogram, expected.get(), completed,
+            TimeUnit.NANOSECONDS.toMillis(lastCompletion - start));
+    }
+
+    private void generate(Sender sender, AtomicLongArray sentAt, AtomicLong expected) {
+        var random = ThreadLocalRandom.current();
+        var padding = "x".repeat(profile.payloadSize());
+        var intervalNanos = profile.rate() > 0 ? TimeUnit.SECONDS.toNanos(1) / profile.rate() : 0;
+        var start = System.nanoTime();
+
+        for (int seq = 0; seq < profile.records() && !Thread.currentThread().isInterrupted(); seq++) {
+            // fixed schedule instead of fixed pause: a slow send is not hidden by skipping the following ones
+            var scheduled = start + seq * intervalNanos;
+            var now = System.nanoTime();
+            if (scheduled > now) {
+                LockSupport.parkNanos(scheduled - now);
+            }
+
+            var key = profile.keys() > 0 ? "key-" + random.nextInt(profile.keys()) : null;
+            var dice = random.nextDouble();
+            if (dice < profile.failRatio()) {
+                sender.send(key, failMessage);
+            } else if (dice < profile.failRatio() + profile.failRetryRatio()) {
+                sender.send(key, failRetryMessage);
+            } else {
+                var head = PREFIX + seq + "-";
+                var message = head + padding.substring(0, Math.max(0, padding.length() - head.length()));
+                expected.incrementAndGet();
+                sentAt.set(seq, System.nanoTime());
+                sender.send(key, message);
+            }
+        }
+    }
+
+    private static int parseSeq(String message) {
+        if (message == null || !message.startsWith(PREFIX)) {
+            return -1;
+        }
+        var end = message.indexOf('-', PREFIX.length());
+        try {
+            return Integer.parseInt(message, PREFIX.length(), end < 0 ? message.length() : end, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public record LoadReport(String name, LoadProfile profile, Histogram latency,
+                             long expected, long completed, long elapsedMillis) {
+
+        public double recordsPerSecond() {
+            return elapsedMillis == 0 ? 0 : completed * 1000.0 / elapsedMillis;
+        }
+
+        public double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+
+        /**
+         * Prints summary and HdrHistogram percentile distribution (in milliseconds) to {@code out}
+         * and stores the distribution to {@code build/load/<name>.hgrm} for plotting and comparison
+         */
+        public LoadReport print(PrintStream out) {
+            out.printf("%s | %s%n", name, profile);
+            out.printf("%s | completed %,d/%,d | %,.0f records/s | p50 %.2f ms | p99 %.2f ms | p999 %.2f ms | max %.2f ms%n",
+                name, completed, expected, recordsPerSecond(),
+                percentileMillis(50), percentileMillis(99), percentileMillis(99.9), latency.getMaxValue() / 1_000_000.0);
+            latency.outputPercentileDistribution(out, 1_000_000.0);
+
+            try {
+                var dir = Files.createDirectories(Path.of("build", "load"));
+                try (var file = new PrintStream(new FileOutputStream(dir.resolve(name + ".hgrm").toFile()))) {
+                    latency.outputPercentileDistribution(file, 1_000_000.0);
+                }
+            } catch (IOException e) {
+                out.printf("%s | unable to store histogram: %s%n", name, e.getMessage());
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package bitxon.spring.kafka.load;
+
+import java.time.Duration;
+
+/**
+ * Shape of generated load, every value can be overridden with {@code -Dload.<name>=...}
+ *
+ * @param rate           records/s sent by generator, {@code 0} - as fast as possible
+ * @param records        total number of records to send
+ * @param payloadSize    length of message text of a successful record
+ * @param keys           key cardinality, {@code 0} - records are sent without key
+ * @param failRatio      share of records which fail without retry
+ * @param failRetryRatio share of records which fail with retry
+ * @param timeout        how long to wait for all successful records to be processed
+ */
+public record LoadProfile(
+    int rate,
+    int records,
+    int payloadSize,
+    int keys,
+    double failRatio,
+    double failRetryRatio,
+    Duration timeout
+) {
+
+    public static LoadProfile fromSystemProperties() {
+        return new LoadProfile(
+            Integer.getInteger("load.rate", 2_000),
+            Integer.getInteger("load.records", 20_000),
+            Integer.getInteger("load.payload-size", 64),
+            Integer.getInteger("load.keys", 100),
+            Double.parseDouble(System.getProperty("load.fail", "0.0")),
+            Double.parseDouble(System.getProperty("load.fail-retry", "0.0")),
+            Duration.ofSeconds(Long.getLong("load.timeout", 120))
+        );
+    }
+}
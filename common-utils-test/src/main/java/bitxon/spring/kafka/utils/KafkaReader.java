@@ -1,5 +1,9 @@
 package bitxon.spring.kafka.utils;
 
+import bitxon.spring.kafka.codec.ContentNegotiatingDeserializer;
+import bitxon.spring.kafka.codec.JsonDeserializer;
+import bitxon.spring.kafka.codec.JsonDeserializer;
+import bitxon.spring.kafka.codec.SchemaRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -26,7 +30,10 @@ public class KafkaReader<T> {
         consumer = new KafkaConsumer<>(
             config,
             new StringDeserializer(),
-            new JsonDeserializer<>(klass)
+            new ContentNegotiatingDeserializer<>(
+                new JsonDeserializer<>(klass),
+                klass.isRecord() ? new SchemaRegistry(klass) : new SchemaRegistry()
+            )
         );
         consumer.subscribe(List.of(topic));
 
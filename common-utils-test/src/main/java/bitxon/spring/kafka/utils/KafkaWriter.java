@@ -1,5 +1,8 @@
 package bitxon.spring.kafka.utils;
 
+import bitxon.spring.kafka.codec.ContentFormat;
+import bitxon.spring.kafka.codec.ContentNegotiatingSerializer;
+import bitxon.spring.kafka.codec.JsonSerializer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -15,6 +18,13 @@ public class KafkaWriter {
     private final String topic;
 
     public KafkaWriter(String bootstrapServers, String topic) {
+        this(bootstrapServers, topic, ContentFormat.JSON);
+    }
+
+    /**
+     * @param format records are written in this format, other values (e.g. raw JSON strings) are always written as is
+     */
+    public KafkaWriter(String bootstrapServers, String topic, ContentFormat format) {
         Map<String, Object> config = Map.of(
             ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
             ProducerConfig.ACKS_CONFIG, "all",  //default=all
@@ -24,7 +34,7 @@ public class KafkaWriter {
         this.producer = new KafkaProducer<>(
             config,
             new StringSerializer(),
-            new JsonSerializer<>()
+            new ContentNegotiatingSerializer<>(format, new JsonSerializer<>())
         );
 
          this.topic = topic;
@@ -40,6 +50,10 @@ public class KafkaWriter {
         }
     }
 
+    public void send(String key, Object value) {
+        producer.send(new ProducerRecord<>(topic, key, value));
+    }
+
     public void send(Object value, Map<String, String> rawHeaders) {
         final var headers = rawHeaders == null ? null : rawHeaders.entrySet().stream()
             .map(e -> (Header) new RecordHeader(e.getKey(), e.getValue().getBytes()))
@@ -0,0 +1,19 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.logging.HotPathLog;
+import bitxon.spring.kafka.logging.HotPathLogs;
+import bitxon.spring.kafka.logging.HotPathLogsConfig;
+import bitxon.spring.kafka.model.Shipment;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@Import(HotPathLogsConfig.class)
+public class HotPathLogConfig {
+
+    @Bean
+    public HotPathLog<Shipment> shipmentLog(HotPathLogs hotPathLogs) {
+        return hotPathLogs.create("shipment", Shipment.class);
+    }
+}
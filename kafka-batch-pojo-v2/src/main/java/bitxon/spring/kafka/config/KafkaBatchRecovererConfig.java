@@ -0,0 +1,60 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.listener.BatchFailureRecoverer;
+import bitxon.spring.kafka.listener.DeadLetterBatchRecoverer;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+
+@Slf4j
+@Configuration
+public class KafkaBatchRecovererConfig {
+    @Value("${custom.shipment.bootstrap-servers}")
+    private String bootstrapServers;
+
+    /**
+     * Used by {@code batch-mode: isolate}, publishes all failed records of a batch to {@code dlt-topic},
+     * or only logs them if {@code dlt-topic} is empty
+     */
+    @Bean
+    public BatchFailureRecoverer batchFailureRecoverer(@Value("${custom.shipment.dlt-topic:}") String dltTopic,
+                                                       KafkaTemplate<String, byte[]> shipmentDltKafkaTemplate,
+                                                       ListenerMetrics listenerMetrics) {
+        if (dltTopic.isBlank()) {
+            return (records, result) -> result.failures().forEach(failure -> {
+                log.error("Processing failed because:", failure.exception());
+                listenerMetrics.recovered(records.get(failure.index()), "log");
+            });
+        }
+        return new DeadLetterBatchRecoverer(shipmentDltKafkaTemplate, dltTopic, listenerMetrics);
+    }
+
+    /**
+     * Dead letters keep key and value bytes of the failed record, producer is closed with the context
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> shipmentDltProducerFactory() {
+        Map<String, Object> config = Map.of(
+            ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+            ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class
+        );
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> shipmentDltKafkaTemplate(ProducerFactory<String, byte[]> shipmentDltProducerFactory) {
+        return new KafkaTemplate<>(shipmentDltProducerFactory);
+    }
+}
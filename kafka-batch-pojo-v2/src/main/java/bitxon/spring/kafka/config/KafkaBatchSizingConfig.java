@@ -0,0 +1,40 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.utils.AdaptiveBatchSizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "custom.shipment.adaptive.enabled", havingValue = "true")
+public class KafkaBatchSizingConfig {
+
+    /**
+     * Tunes max.poll.records and fetch sizing of {@code shipment} listener container, see {@code batch.sizing.*} metrics.
+     * <p>
+     * Registered on the container as BatchInterceptor by {@link KafkaConsumerShipmentConfig}
+     */
+    @Bean
+    public AdaptiveBatchSizer<String, Shipment> shipmentBatchSizer(
+        KafkaListenerEndpointRegistry registry,
+        @Value("${custom.shipment.max-poll-records:10}") int initialRecords,
+        @Value("${custom.shipment.adaptive.min-records:10}") int minRecords,
+        @Value("${custom.shipment.adaptive.max-records:1000}") int maxRecords,
+        @Value("${custom.shipment.adaptive.target-batch-time:1s}") Duration targetBatchTime,
+        @Value("${custom.shipment.adaptive.min-fetch-bytes:1}") int minFetchBytes,
+        @Value("${custom.shipment.adaptive.max-fetch-bytes:1048576}") int maxFetchBytes,
+        @Value("${custom.shipment.adaptive.min-fetch-wait:100ms}") Duration minFetchWait,
+        @Value("${custom.shipment.adaptive.max-fetch-wait:500ms}") Duration maxFetchWait,
+        @Value("${custom.shipment.adaptive.adjust-interval:60s}") Duration adjustInterval,
+        @Value("${custom.shipment.adaptive.min-batches:100}") int minBatches
+    ) {
+        var settings = new AdaptiveBatchSizer.Settings(initialRecords, minRecords, maxRecords, targetBatchTime,
+            minFetchBytes, maxFetchBytes, minFetchWait, maxFetchWait, adjustInterval, minBatches);
+        return new AdaptiveBatchSizer<>("shipment", () -> registry.getListenerContainer("shipment"), settings);
+    }
+}
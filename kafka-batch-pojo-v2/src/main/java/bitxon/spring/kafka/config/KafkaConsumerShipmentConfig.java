@@ -1,19 +1,28 @@
 package bitxon.spring.kafka.config;
 
+import bitxon.spring.kafka.codec.ContentNegotiatingMessageConverter;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import bitxon.spring.kafka.metrics.RebalanceMetrics;
 import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.utils.AdaptiveBatchSizer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.BatchInterceptor;
 import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
 import org.springframework.kafka.support.converter.BatchMessagingMessageConverter;
-import org.springframework.kafka.support.converter.JsonMessageConverter;
 import org.springframework.kafka.support.converter.RecordMessageConverter;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 @Configuration
@@ -22,6 +31,10 @@ public class KafkaConsumerShipmentConfig {
     private String bootstrapServers;
     @Value("${custom.shipment.group-id}")
     private String groupId;
+    @Value("${custom.shipment.max-poll-records:10}")
+    private int maxPollRecords;
+    @Value("${custom.consumer.instance-id:}")
+    private String instanceId;
 
     @Bean
     public Map<String, Object> shipmentConsumerProps() {
@@ -29,10 +42,11 @@ public class KafkaConsumerShipmentConfig {
             ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
             ConsumerConfig.GROUP_ID_CONFIG, groupId,
             ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest", // default='latest'
-            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10, // default=500
+            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords, // default=500, tuned at runtime by AdaptiveBatchSizer if enabled
+            ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName(), // only moved partitions stop
 
             ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
-            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class
+            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class // JSON or binary, see converter()
         );
     }
 
@@ -42,23 +56,45 @@ public class KafkaConsumerShipmentConfig {
     }
 
     @Bean
-    public RecordMessageConverter converter() {
-        return new JsonMessageConverter();
+    public RecordMessageConverter converter(ListenerMetrics listenerMetrics) {
+        return new ContentNegotiatingMessageConverter(listenerMetrics);
     }
 
     @Bean
-    public BatchMessagingMessageConverter batchConverter() {
-        return new BatchMessagingMessageConverter(converter());
+    public BatchMessagingMessageConverter batchConverter(RecordMessageConverter converter) {
+        var batchConverter = new BatchMessagingMessageConverter(converter);
+        batchConverter.setRawRecordHeader(true); // enables KafkaHeaders.RAW_DATA
+        return batchConverter;
     }
 
     @Bean
+    @SuppressWarnings("unchecked")
     public ConcurrentKafkaListenerContainerFactory<String, Shipment> shipmentKafkaListenerContainerFactory(
-        CommonErrorHandler commonErrorHandler
+        CommonErrorHandler commonErrorHandler,
+        BatchMessagingMessageConverter batchConverter,
+        ListenerMetrics listenerMetrics,
+        RebalanceMetrics rebalanceMetrics,
+        ObjectProvider<AdaptiveBatchSizer<String, Shipment>> shipmentBatchSizer
     ) {
         var factory = new ConcurrentKafkaListenerContainerFactory<String, Shipment>();
         factory.setConsumerFactory(shipmentConsumerFactory());
         factory.setCommonErrorHandler(commonErrorHandler);
-        factory.setBatchMessageConverter(batchConverter()); // enables KafkaHeaders.CONVERSION_FAILURES
+        factory.setBatchMessageConverter(batchConverter); // enables KafkaHeaders.CONVERSION_FAILURES
+
+        var interceptors = new ArrayList<BatchInterceptor<String, Shipment>>();
+        interceptors.add(listenerMetrics.batchInterceptor()); // first to measure the whole handling
+        shipmentBatchSizer.ifAvailable(interceptors::add);
+        factory.setBatchInterceptor(new CompositeBatchInterceptor<>(interceptors.toArray(BatchInterceptor[]::new)));
+
+        factory.setContainerCustomizer(container -> {
+            var listenerId = container.getListenerId();
+            var properties = container.getContainerProperties();
+            if (!instanceId.isBlank()) { // static membership, restarted consumer gets its partitions back without a rebalance
+                properties.getKafkaConsumerProperties()
+                    .setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, instanceId + "-" + listenerId);
+            }
+            properties.setConsumerRebalanceListener(rebalanceMetrics.listener(listenerId));
+        });
         return factory;
     }
 
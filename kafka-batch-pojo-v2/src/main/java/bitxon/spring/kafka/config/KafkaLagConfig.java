@@ -0,0 +1,34 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.ConsumerLagMonitor;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "custom.lag.enabled", havingValue = "true")
+public class KafkaLagConfig {
+
+    /**
+     * {@code kafka.consumer.lag} and {@code kafka.consumer.lag.seconds} of own consumer group per partition
+     */
+    @Bean
+    public ConsumerLagMonitor consumerLagMonitor(
+        @Value("${custom.shipment.bootstrap-servers}") String bootstrapServers,
+        @Value("${custom.shipment.group-id}") String groupId,
+        @Value("${custom.lag.topics}") String[] topics,
+        @Value("${custom.lag.poll-interval:10s}") Duration pollInterval,
+        @Value("${custom.lag.metadata-ttl:5m}") Duration metadataTtl,
+        @Value("${custom.lag.timeout:5s}") Duration timeout
+    ) {
+        var admin = Admin.create(Map.<String, Object>of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        return new ConsumerLagMonitor(admin, Map.of(groupId, List.of(topics)), pollInterval, metadataTtl, timeout);
+    }
+}
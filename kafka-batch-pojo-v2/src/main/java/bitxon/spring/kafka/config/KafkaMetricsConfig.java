@@ -0,0 +1,29 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.listener.ShipmentBatchV2Listener;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+@Configuration
+public class KafkaMetricsConfig {
+
+    /**
+     * Exports {@code attempts} and {@code attempts.retries} counters of the listener (see actuator {@code /metrics})
+     */
+    @Bean
+    public MeterBinder shipmentAttemptMetrics(ShipmentBatchV2Listener listener) {
+        return listener.getAttempt();
+    }
+
+    /**
+     * {@code kafka.listener.*} meters of all listeners, see actuator {@code /prometheus}
+     */
+    @Bean
+    public ListenerMetrics listenerMetrics(MeterRegistry meterRegistry, KafkaListenerEndpointRegistry registry) {
+        return new ListenerMetrics(meterRegistry, registry);
+    }
+}
@@ -0,0 +1,23 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.RebalanceMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaRebalanceConfig {
+
+    /**
+     * {@code kafka.consumer.rebalance*} meters, registered on the container by
+     * {@link KafkaConsumerShipmentConfig#shipmentKafkaListenerContainerFactory shipmentKafkaListenerContainerFactory}
+     */
+    @Bean
+    public RebalanceMetrics rebalanceMetrics(MeterRegistry meterRegistry,
+                                             @Value("${custom.consumer.drain-timeout:5s}") Duration drainTimeout) {
+        return new RebalanceMetrics(meterRegistry, drainTimeout);
+    }
+}
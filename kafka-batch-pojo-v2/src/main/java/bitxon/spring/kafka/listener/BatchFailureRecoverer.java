@@ -0,0 +1,14 @@
+package bitxon.spring.kafka.listener;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.List;
+
+/**
+ * Receives all failed records of a batch at once, the batch is committed after it returns
+ */
+@FunctionalInterface
+public interface BatchFailureRecoverer {
+
+    void recover(List<ConsumerRecord<?, ?>> records, BatchResult result);
+}
@@ -0,0 +1,15 @@
+package bitxon.spring.kafka.listener;
+
+import java.util.List;
+
+/**
+ * Per-index outcome of a batch: indexes that are not listed in {@code failures} were processed successfully
+ */
+public record BatchResult(int size, List<Failure> failures) {
+
+    public record Failure(int index, Exception exception) {}
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,114 @@
+package bitxon.spring.kafka.listener;
+
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes all failed records of a batch to {@code dltTopic} in one go (sends are batched by the producer and awaited
+ * together), the batch is committed only after all dead letters are confirmed.
+ * <p>
+ * If some of them are not, {@link BatchListenerFailedException} with the lowest of their indexes makes the error
+ * handler commit the batch before it and redeliver the rest. Records of the rest whose dead letter was confirmed
+ * are remembered and not sent again when they come back.
+ */
+public class DeadLetterBatchRecoverer implements BatchFailureRecoverer {
+    private static final int MAX_REMEMBERED = 10_000;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final String dltTopic;
+    private final ListenerMetrics listenerMetrics;
+    private final Set<RecordId> recovered = ConcurrentHashMap.newKeySet();
+
+    public DeadLetterBatchRecoverer(KafkaTemplate<String, byte[]> kafkaTemplate, String dltTopic,
+                                    ListenerMetrics listenerMetrics) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.dltTopic = dltTopic;
+        this.listenerMetrics = listenerMetrics;
+    }
+
+    @Override
+    public void recover(List<ConsumerRecord<?, ?>> records, BatchResult result) {
+        var sends = new ArrayList<Send>(result.failures().size());
+        for (var failure : result.failures()) { // in index order
+            var rec = records.get(failure.index());
+            if (recovered.remove(RecordId.of(rec))) {
+                continue; // redelivered after a dead letter of a record before it was not confirmed
+            }
+            sends.add(new Send(failure, rec, send(rec, failure)));
+        }
+
+        Send notSent = null;
+        Exception cause = null;
+        for (var send : sends) {
+            try {
+                send.result().join();
+            } catch (RuntimeException e) {
+                if (notSent == null) {
+                    notSent = send;
+                    cause = e;
+                }
+                continue;
+            }
+            listenerMetrics.recovered(send.rec(), "dlq");
+            if (notSent != null) { // comes again, the batch is committed only up to notSent
+                remember(RecordId.of(send.rec()));
+            }
+        }
+        if (notSent != null) {
+            throw new BatchListenerFailedException("Dead letter not sent", cause, notSent.failure().index());
+        }
+    }
+
+    /**
+     * Synchronous failure (e.g. serialization, {@code max.block.ms} exceeded) is returned as a failed send,
+     * so records after it are still sent and the batch is committed up to it
+     */
+    private CompletableFuture<SendResult<String, byte[]>> send(ConsumerRecord<?, ?> rec, BatchResult.Failure failure) {
+        try {
+            return kafkaTemplate.send(deadLetter(rec, failure));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void remember(RecordId id) {
+        if (recovered.size() >= MAX_REMEMBERED) {
+            recovered.clear(); // partitions were reassigned before their records came back
+        }
+        recovered.add(id);
+    }
+
+    private ProducerRecord<String, byte[]> deadLetter(ConsumerRecord<?, ?> rec, BatchResult.Failure failure) {
+        var deadLetter = new ProducerRecord<>(dltTopic, null, (String) rec.key(), (byte[]) rec.value(), rec.headers()); // original format header is kept
+        deadLetter.headers()
+            .add(new RecordHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC, rec.topic().getBytes(StandardCharsets.UTF_8)))
+            .add(new RecordHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(rec.partition()).array()))
+            .add(new RecordHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(rec.offset()).array()))
+            .add(new RecordHeader(KafkaHeaders.DLT_EXCEPTION_FQCN, failure.exception().getClass().getName().getBytes(StandardCharsets.UTF_8)))
+            .add(new RecordHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(failure.exception().getMessage()).getBytes(StandardCharsets.UTF_8)));
+        return deadLetter;
+    }
+
+    private record Send(BatchResult.Failure failure, ConsumerRecord<?, ?> rec,
+                        CompletableFuture<SendResult<String, byte[]>> result) {}
+
+    private record RecordId(String topic, int partition, long offset) {
+        static RecordId of(ConsumerRecord<?, ?> rec) {
+            return new RecordId(rec.topic(), rec.partition(), rec.offset());
+        }
+    }
+}
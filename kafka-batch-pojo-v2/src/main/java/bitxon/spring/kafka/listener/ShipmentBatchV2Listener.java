@@ -2,50 +2,82 @@ package bitxon.spring.kafka.listener;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
 import bitxon.spring.kafka.exception.CustomRetryableException;
+import bitxon.spring.kafka.logging.HotPathLog;
 import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.model.ShipmentValidator;
+import bitxon.spring.kafka.store.ProcessedStore;
 import bitxon.spring.kafka.utils.AttemptTracker;
-import jakarta.validation.Validator;
+import bitxon.spring.kafka.validation.RecordValidator;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.TopicPartitionOffset;
 import org.springframework.kafka.support.converter.ConversionException;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
 
 import static bitxon.spring.kafka.exception.ErrorType.FAIL;
 import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
 
 
-@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShipmentBatchV2Listener {
-    @Getter private final AttemptTracker<List<Shipment>> attempt = new AttemptTracker<>();
-    @Getter private final ConcurrentLinkedQueue<Shipment> repository = new ConcurrentLinkedQueue<>();
+    @Getter private final AttemptTracker<List<Shipment>, List<TopicPartitionOffset>> attempt = new AttemptTracker<>(
+        "shipment-batch-v2", AttemptTracker.DEFAULT_CAPACITY, AttemptTracker.batchRedelivery() // same shipment may come in another record
+    );
+    @Getter private final ProcessedStore<Shipment> repository;
 
-    private final Validator validator;
+    private final RecordValidator<Shipment> validator = new ShipmentValidator(); // generated, see validation-processor
+    private final HotPathLog<Shipment> shipmentLog;
+    private final BatchFailureRecoverer batchFailureRecoverer;
+
+    @Value("${custom.shipment.batch-mode:fail-fast}")
+    private String batchMode;
 
     @KafkaListener(
+        id = "shipment",
+        idIsGroup = false,
         batch = "true",
         topics = "shipment",
         containerFactory = "shipmentKafkaListenerContainerFactory"
     )
     // https://docs.spring.io/spring-kafka/reference/kafka/annotation-error-handling.html#batch-listener-conv-errors
     public void handleShipment(@Payload List<Shipment> shipments,
-                               @Header(KafkaHeaders.CONVERSION_FAILURES) List<ConversionException> exceptions) {
-        log.info("Shipment messages: {}, exceptions: {}", shipments, exceptions);
-        attempt.put(shipments);
+                               @Header(KafkaHeaders.CONVERSION_FAILURES) List<ConversionException> exceptions,
+                               @Header(KafkaHeaders.RAW_DATA) List<ConsumerRecord<?, ?>> records,
+                               @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                               @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                               @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        shipmentLog.batch(topics, partitions, offsets, shipments); // conversion failures are logged by error handler
+        attempt.put(shipments, coordinates(topics, partitions, offsets));
+
+        var processed = new ArrayList<Shipment>(shipments.size());
+        try {
+            if ("isolate".equals(batchMode)) {
+                var result = handleShipmentsIsolated(shipments, exceptions, processed);
+                if (!result.isSuccess()) {
+                    batchFailureRecoverer.recover(records, result);
+                }
+                return; // whole batch is committed, nothing is redelivered
+            }
+            handleShipmentsSequentially(shipments, exceptions, processed);
+        } finally {
+            repository.addAll(processed); // one write per batch, including records processed before a failure
+        }
+    }
 
+    private void handleShipmentsSequentially(List<Shipment> shipments, List<ConversionException> exceptions,
+                                             List<Shipment> processed) {
         for (int index = 0; index < shipments.size(); index++) {
             var shipment = shipments.get(index);
             var exception = exceptions.get(index);
@@ -65,19 +97,51 @@ public class ShipmentBatchV2Listener {
             } catch (Exception ex) {
                 throw new BatchListenerFailedException("Processing Error", ex, index);
             }
+            processed.add(shipment);
+        }
+    }
+
+    /**
+     * Every record is handled independently, failures are collected instead of thrown
+     */
+    private BatchResult handleShipmentsIsolated(List<Shipment> shipments, List<ConversionException> exceptions,
+                                                List<Shipment> processed) {
+        var failures = new ArrayList<BatchResult.Failure>();
+        for (int index = 0; index < shipments.size(); index++) {
+            var shipment = shipments.get(index);
+            var exception = exceptions.get(index);
+
+            if (shipment == null && exception != null) {
+                failures.add(new BatchResult.Failure(index, exception));
+                continue;
+            }
+
+            try {
+                validate(shipment);
+                handleShipment(shipment);
+                processed.add(shipment);
+            } catch (Exception ex) {
+                failures.add(new BatchResult.Failure(index, ex));
+            }
+        }
+        return new BatchResult(shipments.size(), failures);
+    }
+
+    private static List<TopicPartitionOffset> coordinates(List<String> topics, List<Integer> partitions, List<Long> offsets) {
+        var coordinates = new ArrayList<TopicPartitionOffset>(offsets.size());
+        for (int index = 0; index < offsets.size(); index++) {
+            coordinates.add(new TopicPartitionOffset(topics.get(index), partitions.get(index), offsets.get(index)));
         }
+        return coordinates;
     }
 
     private void validate(Shipment shipment) {
         if (shipment == null) {
             throw new CustomNonRetryableException("Entity must not be null");
         }
-        var errors = validator.validate(shipment);
-        if (!CollectionUtils.isEmpty(errors)) {
-            var message = errors.stream()
-                .map(it -> "%s %s".formatted(it.getPropertyPath().toString(), it.getMessage()))
-                .collect(Collectors.joining(", "));
-            throw new CustomNonRetryableException(message);
+        var violations = validator.describeViolations(shipment); // nothing is allocated for valid shipment
+        if (violations != null) {
+            throw new CustomNonRetryableException(violations);
         }
     }
 
@@ -86,6 +150,5 @@ public class ShipmentBatchV2Listener {
             case FAIL_RETRY -> throw new CustomRetryableException(FAIL_RETRY);
             case FAIL -> throw new CustomNonRetryableException(FAIL);
         }
-        repository.add(shipment);
     }
 }
@@ -0,0 +1,113 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.ShipmentBatchV2Listener;
+import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.utils.KafkaReader;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.shipment.batch-mode=isolate",
+    "custom.shipment.dlt-topic=shipment-dlt"
+})
+class ShipmentBatchV2IsolateListenerTest {
+    private static final Duration DELAY = Duration.ofMillis(1_500);
+
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    KafkaReader<String> dlqReader;
+    @Autowired
+    ShipmentBatchV2Listener shipmentBatchListener;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class DlqReaderConfig {
+        @Bean
+        public KafkaReader<String> dlqReader(@Value("${custom.shipment.bootstrap-servers}") String bootstrapServers) {
+            return new KafkaReader<>(bootstrapServers, "shipment-dlt", String.class);
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        shipmentBatchListener.getAttempt().clear();
+        shipmentBatchListener.getRepository().clear();
+        dlqReader.clear();
+    }
+
+    @Test
+    void invalidJsonFormatBatch() {
+        // when
+        var entity1 = new Shipment("1", 1);
+        var entity2 = "{\"invalid-json {";
+        var entity3 = new Shipment("3", 3);
+        var entity4 = new Shipment("4", 4);
+        kafkaWriter.send(List.of(entity1, entity2, entity3, entity4));
+
+        // then
+        await().pollDelay(DELAY).untilAsserted(() -> {
+            assertAttempts(Map.of(
+                1, Arrays.asList(entity1, null, entity3, entity4) // Process #1, #3, #4, #2 -> DLT
+            ));
+            assertProcessed(List.of(entity1, entity3, entity4));
+            assertThat(dlqReader.find(it -> true)).containsExactly(entity2);
+        });
+    }
+
+    @Test
+    void failedWithRetryBatch() {
+        // given
+        var entity1 = new Shipment("1", 1);
+        var entity2 = new Shipment(FAIL_RETRY, 2);
+        var entity3 = new Shipment("3", 3);
+        var entity4 = new Shipment(FAIL, 4);
+
+        // when
+        kafkaWriter.send(List.of(entity1, entity2, entity3, entity4));
+
+        // then
+        await().pollDelay(DELAY).untilAsserted(() -> {
+            assertAttempts(Map.of(
+                1, List.of(entity1, entity2, entity3, entity4) // Process #1, #3, #2 and #4 -> DLT, no redelivery
+            ));
+            assertProcessed(List.of(entity1, entity3));
+            assertThat(dlqReader.find(it -> true)).hasSize(2);
+        });
+    }
+
+
+    private void assertAttempts(Map<Integer, List<Shipment>> expectedAttempts) {
+        assertThat(shipmentBatchListener.getAttempt().getAll()).as("Check attempts")
+            .containsExactlyInAnyOrderEntriesOf(expectedAttempts);
+    }
+
+    private void assertProcessed(List<Shipment> expectedRecords) {
+        assertThat(shipmentBatchListener.getRepository()).as("Check entities processed")
+            .containsExactlyInAnyOrderElementsOf(expectedRecords);
+    }
+
+}
@@ -26,4 +26,9 @@ public class TestContainersConfig {
     public NewTopic shipment() {
         return new NewTopic("shipment", 1, (short) 1);
     }
+
+    @Bean
+    public NewTopic shipmentDlt() {
+        return new NewTopic("shipment-dlt", 1, (short) 1);
+    }
 }
@@ -1,17 +1,18 @@
 package bitxon.spring.kafka.config;
 
+import bitxon.spring.kafka.codec.ContentNegotiatingMessageConverter;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.support.converter.BatchMessagingMessageConverter;
-import org.springframework.kafka.support.converter.JsonMessageConverter;
 import org.springframework.kafka.support.converter.RecordMessageConverter;
 
 @Configuration
 public class KafkaBatchConfig {
 
     @Bean
-    public RecordMessageConverter converter() {
-        return new JsonMessageConverter();
+    public RecordMessageConverter converter(ListenerMetrics listenerMetrics) {
+        return new ContentNegotiatingMessageConverter(listenerMetrics);
     }
 
     /**
@@ -19,7 +20,7 @@ public class KafkaBatchConfig {
      * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactoryConfigurer KafkaAnnotationDrivenConfiguration}
      */
     @Bean
-    public BatchMessagingMessageConverter batchConverter() {
-        return new BatchMessagingMessageConverter(converter());
+    public BatchMessagingMessageConverter batchConverter(RecordMessageConverter converter) {
+        return new BatchMessagingMessageConverter(converter);
     }
 }
@@ -1,6 +1,7 @@
 package bitxon.spring.kafka.config;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,14 +25,17 @@ public class KafkaErrorHandlerConfig {
      * If you want explicitly specify only retryable exception use
      * {@link org.springframework.kafka.listener.DefaultErrorHandler#defaultFalse defaultFalse()} and
      * {@link org.springframework.kafka.listener.DefaultErrorHandler#addRetryableExceptions addRetryableExceptions(...)}
+     * <p>
+     * Failed deliveries and recovered records are counted by {@link ListenerMetrics}
      */
     @Bean
-    public CommonErrorHandler commonErrorHandler() {
+    public CommonErrorHandler commonErrorHandler(ListenerMetrics listenerMetrics) {
         BackOff backOff = new FixedBackOff(100, 5);
         ConsumerRecordRecoverer recoverer = (__, exception) -> log.error("Processing failed because:", exception);
 
-        var errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        var errorHandler = new DefaultErrorHandler(listenerMetrics.recoverer("log", recoverer), backOff);
         errorHandler.addNotRetryableExceptions(CustomNonRetryableException.class);
+        errorHandler.setRetryListeners(listenerMetrics.retryListener());
 
         return errorHandler;
     }
@@ -0,0 +1,55 @@
+package bitxon.spring.kafka.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class KafkaExecutorConfig {
+
+    /**
+     * Consumer threads of listener containers, {@code threads: virtual} runs handler invocations on virtual threads
+     * so blocking handlers don't pin an OS thread
+     */
+    @Bean
+    public AsyncTaskExecutor listenerTaskExecutor(@Value("${custom.listener.threads:platform}") String threads) {
+        var executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+        executor.setVirtualThreads("virtual".equals(threads));
+        return executor;
+    }
+
+    /**
+     * This will be applied to containers created by kafkaListenerContainerFactory specified in:
+     * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactory KafkaAnnotationDrivenConfiguration}
+     * (wrapped by {@link KafkaRebalanceConfig#containerCustomizer containerCustomizer})
+     */
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> listenerTaskExecutorCustomizer(
+        @Qualifier("listenerTaskExecutor") AsyncTaskExecutor listenerTaskExecutor
+    ) {
+        return container -> container.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+    }
+
+    /**
+     * Processes records of one batch in parallel, {@code parallelism} bounds the number of records in progress
+     */
+    @Bean
+    public Executor shipmentExecutor(@Value("${custom.shipment.parallelism:16}") int parallelism,
+                                     @Value("${custom.listener.threads:platform}") String threads) {
+        if ("virtual".equals(threads)) {
+            var executor = new SimpleAsyncTaskExecutor("shipment-worker-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(parallelism);
+            return executor;
+        }
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -0,0 +1,12 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.ConsumerLagMonitorConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@ConditionalOnProperty(name = "custom.lag.enabled", havingValue = "true")
+@Import(ConsumerLagMonitorConfig.class)
+public class KafkaLagConfig {
+}
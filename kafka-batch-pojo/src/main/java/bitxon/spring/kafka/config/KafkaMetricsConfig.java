@@ -0,0 +1,54 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.listener.ShipmentBatchListener;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import bitxon.spring.kafka.utils.AdaptiveBatchSizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
+
+import java.util.ArrayList;
+
+@Configuration
+public class KafkaMetricsConfig {
+
+    /**
+     * Exports {@code attempts} and {@code attempts.retries} counters of the listener (see actuator {@code /metrics})
+     */
+    @Bean
+    public MeterBinder shipmentAttemptMetrics(ShipmentBatchListener listener) {
+        return listener.getAttempt();
+    }
+
+    /**
+     * {@code kafka.listener.*} meters of all listeners, see actuator {@code /prometheus}
+     */
+    @Bean
+    public ListenerMetrics listenerMetrics(MeterRegistry meterRegistry, KafkaListenerEndpointRegistry registry) {
+        return new ListenerMetrics(meterRegistry, registry);
+    }
+
+    /**
+     * Container factory accepts only one interceptor, primary one is picked by
+     * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactoryConfigurer KafkaAnnotationDrivenConfiguration},
+     * metrics go first to measure the whole handling
+     */
+    @Bean
+    @Primary
+    @SuppressWarnings("unchecked")
+    public BatchInterceptor<Object, Object> batchInterceptor(
+        ListenerMetrics listenerMetrics,
+        ObjectProvider<AdaptiveBatchSizer<Object, Object>> shipmentBatchSizer
+    ) {
+        var interceptors = new ArrayList<BatchInterceptor<Object, Object>>();
+        interceptors.add(listenerMetrics.batchInterceptor());
+        shipmentBatchSizer.ifAvailable(interceptors::add);
+        return new CompositeBatchInterceptor<>(interceptors.toArray(BatchInterceptor[]::new));
+    }
+}
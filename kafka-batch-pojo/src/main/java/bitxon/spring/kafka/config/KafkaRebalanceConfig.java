@@ -0,0 +1,56 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.RebalanceMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaRebalanceConfig {
+
+    /**
+     * {@code kafka.consumer.rebalance*} meters of all listeners, revoked partitions wait up to {@code drain-timeout}
+     * for their in-flight records
+     */
+    @Bean
+    public RebalanceMetrics rebalanceMetrics(MeterRegistry meterRegistry,
+                                             @Value("${custom.consumer.drain-timeout:5s}") Duration drainTimeout) {
+        return new RebalanceMetrics(meterRegistry, drainTimeout);
+    }
+
+    /**
+     * Container factory applies only one customizer (primary one), so this one wraps
+     * {@link KafkaExecutorConfig#listenerTaskExecutorCustomizer listenerTaskExecutorCustomizer}.
+     * <p>
+     * Adds rebalance listener and, if {@code instance-id} is set, static membership: {@code group.instance.id} is
+     * {@code <instance-id>-<listener id>} (suffixed with consumer index if concurrency > 1), a restarted consumer gets
+     * its partitions back without a rebalance as long as it rejoins within {@code session.timeout.ms}
+     */
+    @Bean
+    @Primary
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> containerCustomizer(
+        @Qualifier("listenerTaskExecutorCustomizer")
+        ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> listenerTaskExecutorCustomizer,
+        RebalanceMetrics rebalanceMetrics,
+        @Value("${custom.consumer.instance-id:}") String instanceId
+    ) {
+        return container -> {
+            listenerTaskExecutorCustomizer.configure(container);
+            var listenerId = container.getListenerId();
+            var properties = container.getContainerProperties();
+            if (!instanceId.isBlank()) {
+                properties.getKafkaConsumerProperties()
+                    .setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, instanceId + "-" + listenerId);
+            }
+            properties.setConsumerRebalanceListener(rebalanceMetrics.listener(listenerId));
+        };
+    }
+}
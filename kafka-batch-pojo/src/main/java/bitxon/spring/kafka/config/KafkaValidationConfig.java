@@ -1,5 +1,6 @@
 package bitxon.spring.kafka.config;
 
+import bitxon.spring.kafka.validation.RecordValidatorAdapter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.KafkaListenerConfigurer;
@@ -14,6 +15,6 @@ public class KafkaValidationConfig implements KafkaListenerConfigurer {
 
     @Override
     public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
-        registrar.setValidator(validator);
+        registrar.setValidator(new RecordValidatorAdapter(validator)); // generated validators, Hibernate Validator for other types
     }
 }
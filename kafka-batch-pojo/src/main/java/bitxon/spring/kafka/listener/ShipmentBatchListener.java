@@ -2,49 +2,79 @@ package bitxon.spring.kafka.listener;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
 import bitxon.spring.kafka.exception.CustomRetryableException;
+import bitxon.spring.kafka.logging.HotPathLog;
 import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.model.ShipmentValidator;
+import bitxon.spring.kafka.store.ProcessedStore;
 import bitxon.spring.kafka.utils.AttemptTracker;
-import jakarta.validation.Validator;
+import bitxon.spring.kafka.validation.RecordValidator;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.TopicPartitionOffset;
 import org.springframework.kafka.support.converter.ConversionException;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static bitxon.spring.kafka.exception.ErrorType.FAIL;
 import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
 
 
-@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShipmentBatchListener {
-    @Getter private final AttemptTracker<List<Shipment>> attempt = new AttemptTracker<>();
-    @Getter private final ConcurrentLinkedQueue<Shipment> repository = new ConcurrentLinkedQueue<>();
+    @Getter private final AttemptTracker<List<Shipment>, List<TopicPartitionOffset>> attempt = new AttemptTracker<>(
+        "shipment-batch", AttemptTracker.DEFAULT_CAPACITY, AttemptTracker.batchRedelivery() // same shipment may come in another record
+    );
+    @Getter private final ProcessedStore<Shipment> repository;
 
-    private final Validator validator;
+    private final RecordValidator<Shipment> validator = new ShipmentValidator(); // generated, see validation-processor
+    private final HotPathLog<Shipment> shipmentLog;
+    private final Executor shipmentExecutor;
+
+    @Value("${custom.shipment.batch-mode:sequential}")
+    private String batchMode;
 
     @KafkaListener(
+        id = "shipment",
+        idIsGroup = false,
         batch = "true",
         topics = "shipment"
     )
     // https://docs.spring.io/spring-kafka/reference/kafka/annotation-error-handling.html#batch-listener-conv-errors
     public void handleShipment(@Payload List<Shipment> shipments,
-                               @Header(KafkaHeaders.CONVERSION_FAILURES) List<ConversionException> exceptions) {
-        log.info("Shipment messages: {}, exceptions: {}", shipments, exceptions);
-        attempt.put(shipments);
+                               @Header(KafkaHeaders.CONVERSION_FAILURES) List<ConversionException> exceptions,
+                               @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                               @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                               @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        shipmentLog.batch(topics, partitions, offsets, shipments); // conversion failures are logged by error handler
+        attempt.put(shipments, coordinates(topics, partitions, offsets));
 
+        var processed = new ArrayList<Shipment>(shipments.size());
+        try {
+            if ("parallel".equals(batchMode)) {
+                handleShipmentsInParallel(shipments, exceptions, processed);
+            } else {
+                handleShipmentsSequentially(shipments, exceptions, processed);
+            }
+        } finally {
+            repository.addAll(processed); // one write per batch, including records processed before a failure
+        }
+    }
+
+    private void handleShipmentsSequentially(List<Shipment> shipments, List<ConversionException> exceptions,
+                                             List<Shipment> processed) {
         for (int index = 0; index < shipments.size(); index++) {
             var shipment = shipments.get(index);
             var exception = exceptions.get(index);
@@ -64,19 +94,101 @@ public class ShipmentBatchListener {
             } catch (Exception ex) {
                 throw new BatchListenerFailedException("Processing Error", ex, index);
             }
+            processed.add(shipment);
+        }
+    }
+
+    /**
+     * Validates all records in parallel, then processes records before the first invalid one in parallel.
+     * Throws for the lowest failing index, so the error handler commits everything before it as in sequential mode.
+     * Records after a failure are skipped unless already started.
+     * <p>
+     * NOTE: records after a failed one that were already started will be processed again on redelivery
+     */
+    private void handleShipmentsInParallel(List<Shipment> shipments, List<ConversionException> exceptions,
+                                           List<Shipment> processed) {
+        var lowestInvalid = new AtomicInteger(shipments.size());
+        var validated = new CompletableFuture<?>[shipments.size()];
+        for (int index = 0; index < shipments.size(); index++) {
+            var shipment = shipments.get(index);
+            var exception = exceptions.get(index);
+            var batchIndex = index;
+            validated[index] = CompletableFuture.runAsync(() -> unlessFailedBefore(lowestInvalid, batchIndex, () -> {
+                if (shipment == null && exception != null) {
+                    throw new BatchListenerFailedException("Conversion Error", exception, batchIndex);
+                }
+                try {
+                    validate(shipment);
+                } catch (Exception ex) {
+                    throw new BatchListenerFailedException("Validation Error", ex, batchIndex);
+                }
+            }), shipmentExecutor);
+        }
+        var invalid = firstFailure(validated);
+        var validCount = invalid == null ? shipments.size() : invalid.getIndex();
+
+        var lowestFailed = new AtomicInteger(validCount);
+        var handled = new CompletableFuture<?>[validCount];
+        for (int index = 0; index < validCount; index++) {
+            var shipment = shipments.get(index);
+            var batchIndex = index;
+            handled[index] = CompletableFuture.runAsync(() -> unlessFailedBefore(lowestFailed, batchIndex, () -> {
+                try {
+                    handleShipment(shipment);
+                } catch (Exception ex) {
+                    throw new BatchListenerFailedException("Processing Error", ex, batchIndex);
+                }
+            }), shipmentExecutor);
+        }
+        var failed = firstFailure(handled);
+        var processedCount = failed == null ? validCount : failed.getIndex(); // later ones come again with the failed one
+        processed.addAll(shipments.subList(0, processedCount));
+
+        if (failed != null) {
+            throw failed;
+        }
+        if (invalid != null) {
+            throw invalid;
+        }
+    }
+
+    private static void unlessFailedBefore(AtomicInteger lowestFailed, int index, Runnable task) {
+        if (index > lowestFailed.get()) {
+            return; // redelivered with the failed record anyway
+        }
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            lowestFailed.accumulateAndGet(index, Math::min);
+            throw ex;
+        }
+    }
+
+    private static BatchListenerFailedException firstFailure(CompletableFuture<?>[] futures) {
+        CompletableFuture.allOf(futures).exceptionally(ex -> null).join();
+        for (int index = 0; index < futures.length; index++) {
+            if (futures[index].isCompletedExceptionally()) {
+                return (BatchListenerFailedException) futures[index].exceptionNow();
+            }
+        }
+        return null;
+    }
+
+    private static List<TopicPartitionOffset> coordinates(List<String> topics, List<Integer> partitions, List<Long> offsets) {
+        var coordinates = new ArrayList<TopicPartitionOffset>(offsets.size());
+        for (int index = 0; index < offsets.size(); index++) {
+            coordinates.add(new TopicPartitionOffset(topics.get(index), partitions.get(index), offsets.get(index)));
         }
+        return coordinates;
     }
 
     private void validate(Shipment shipment) {
         if (shipment == null) {
             throw new CustomNonRetryableException("Entity must not be null");
         }
-        var errors = validator.validate(shipment);
-        if (!CollectionUtils.isEmpty(errors)) {
-            var message = errors.stream()
-                .map(it -> "%s %s".formatted(it.getPropertyPath().toString(), it.getMessage()))
-                .collect(Collectors.joining(", "));
-            throw new CustomNonRetryableException(message);
+        var violations = validator.describeViolations(shipment); // nothing is allocated for valid shipment
+        if (violations != null) {
+            throw new CustomNonRetryableException(violations);
         }
     }
 
@@ -85,6 +197,5 @@ public class ShipmentBatchListener {
             case FAIL_RETRY -> throw new CustomRetryableException(FAIL_RETRY);
             case FAIL -> throw new CustomNonRetryableException(FAIL);
         }
-        repository.add(shipment);
     }
 }
@@ -0,0 +1,80 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.codec.ContentFormat;
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.ShipmentBatchListener;
+import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class ShipmentBatchListenerBinaryTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(3_000);
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class BinaryWriterConfig {
+        @Bean
+        public KafkaWriter binaryKafkaWriter(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+            return new KafkaWriter(bootstrapServers, "shipment", ContentFormat.BINARY);
+        }
+    }
+
+    @Qualifier("kafkaWriter")
+    @Autowired
+    KafkaWriter jsonKafkaWriter;
+    @Qualifier("binaryKafkaWriter")
+    @Autowired
+    KafkaWriter binaryKafkaWriter;
+    @Autowired
+    ShipmentBatchListener shipmentBatchListener;
+
+    @BeforeEach
+    void beforeEach() {
+        shipmentBatchListener.getAttempt().clear();
+        shipmentBatchListener.getRepository().clear();
+    }
+
+    @Test
+    void jsonAndBinaryRecordsInOneBatch() {
+        // when
+        jsonKafkaWriter.send(new Shipment("JSON", 1));
+        binaryKafkaWriter.send(new Shipment("Binary", 2));
+
+        // then
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            assertThat(shipmentBatchListener.getRepository()).as("Check entities processed")
+                .containsExactlyInAnyOrder(new Shipment("JSON", 1), new Shipment("Binary", 2))
+        );
+    }
+
+    @Test
+    void invalidBinaryRecord() {
+        // when
+        binaryKafkaWriter.send(new Shipment("", 1));
+
+        // then
+        await().pollDelay(Duration.ofMillis(1_500)).untilAsserted(() ->
+            assertThat(shipmentBatchListener.getRepository()).as("Check entities processed")
+                .isEmpty()
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package bitxon.spring.kafka.load;
+
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.ShipmentBatchListener;
+import bitxon.spring.kafka.model.Shipment;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Run with {@code ./gradlew kafka-batch-pojo:load -Pload.rate=5000 -Pload.fail=0.01}
+ */
+@Tag("load")
+@Import(TestUtilsConfig.class)
+@EmbeddedKafka(topics = "shipment", partitions = 3)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "custom.shipment.adaptive.enabled=true", // batch.sizing.* metrics show what it converges to
+    "custom.shipment.adaptive.adjust-interval=10s"
+})
+class ShipmentBatchListenerLoadTest {
+
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    ShipmentBatchListener shipmentBatchListener;
+
+    @Test
+    void shipment() {
+        var harness = new LoadHarness(LoadProfile.fromSystemProperties(), FAIL, FAIL_RETRY);
+
+        var report = harness.run("shipment-batch",
+            (key, message) -> kafkaWriter.send(key, new Shipment(message, 1)),
+            () -> {
+                var shipment = shipmentBatchListener.getRepository().poll();
+                return shipment == null ? null : shipment.address();
+            }
+        ).print(System.out);
+
+        assertThat(report.completed()).isEqualTo(report.expected());
+    }
+}
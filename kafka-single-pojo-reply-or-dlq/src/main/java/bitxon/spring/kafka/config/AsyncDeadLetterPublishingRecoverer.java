@@ -0,0 +1,208 @@
+package bitxon.spring.kafka.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+/**
+ * Doesn't wait for every dead letter: sends are pipelined (and batched by the producer) within a bounded in-flight
+ * window, the error handler thread blocks only when the window is full.
+ * <p>
+ * The source record counts as recovered before its dead letter is confirmed, so {@link #awaitInFlight awaitInFlight}
+ * must be called before source offsets are committed, {@link #confirmingCommits confirmingCommits} does it for every
+ * commit of a consumer. With {@link #setFailIfSendResultIsError failIfSendResultIsError(false)} failed dead letters
+ * are only logged and counted, like the synchronous recoverer does.
+ */
+@Slf4j
+public class AsyncDeadLetterPublishingRecoverer extends DeadLetterPublishingRecoverer {
+    private final Semaphore window;
+    private final Set<Sent> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<Sent> failed = ConcurrentHashMap.newKeySet();
+    private final Timer publishLatency;
+    private final Counter publishFailures;
+
+    public AsyncDeadLetterPublishingRecoverer(KafkaOperations<?, ?> template,
+                                              BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> destinationResolver,
+                                              int maxInFlight,
+                                              MeterRegistry meterRegistry) {
+        super(template, destinationResolver);
+        this.window = new Semaphore(maxInFlight);
+        this.publishLatency = Timer.builder("dlq.publish.latency")
+            .description("Time from dead letter send to broker acknowledgement")
+            .register(meterRegistry);
+        this.publishFailures = Counter.builder("dlq.publish.failures")
+            .register(meterRegistry);
+        Gauge.builder("dlq.publish.in-flight", inFlight, Set::size)
+            .description("Dead letters sent but not yet acknowledged by the broker")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord,
+                           KafkaOperations<Object, Object> kafkaTemplate,
+                           ConsumerRecord<?, ?> inRecord) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for DLQ in-flight window", e);
+        }
+
+        var start = System.nanoTime();
+        var sendResult = send(kafkaTemplate, outRecord);
+        var sent = new Sent(new TopicPartition(inRecord.topic(), inRecord.partition()), inRecord.offset());
+        inFlight.add(sent);
+        sendResult.whenComplete((result, exception) -> {
+            publishLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (exception != null) {
+                publishFailures.increment();
+                log.error("Dead-letter publication to {} failed for: {}", outRecord.topic(), inRecord, exception);
+                if (isFailIfSendResultIsError()) {
+                    failed.add(sent);
+                }
+            }
+            inFlight.remove(sent);
+            window.release();
+            sent.done.complete(null);
+        });
+    }
+
+    private CompletableFuture<?> send(KafkaOperations<Object, Object> kafkaTemplate, ProducerRecord<Object, Object> outRecord) {
+        try {
+            return kafkaTemplate.send(outRecord);
+        } catch (RuntimeException e) {
+            window.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until dead letters of records from {@code partitions} are acknowledged by the broker
+     *
+     * @throws DeadLetterNotConfirmedException if some of them failed or are still in flight after {@code timeout},
+     *                                         their source records must not be committed; reported failures are forgotten
+     */
+    public void awaitInFlight(Collection<TopicPartition> partitions, Duration timeout) {
+        var pending = inFlight.stream()
+            .filter(sent -> partitions.contains(sent.partition))
+            .map(sent -> sent.done)
+            .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(pending).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("Dead letters are still in flight after {}", timeout);
+        } catch (Exception e) {
+            throw new IllegalStateException(e); // 'done' never completes exceptionally
+        }
+
+        var unconfirmed = new HashMap<TopicPartition, Long>();
+        for (var sent : failed) {
+            if (partitions.contains(sent.partition) && failed.remove(sent)) {
+                unconfirmed.merge(sent.partition, sent.offset, Math::min);
+            }
+        }
+        for (var sent : inFlight) {
+            if (partitions.contains(sent.partition)) {
+                unconfirmed.merge(sent.partition, sent.offset, Math::min);
+            }
+        }
+        if (!unconfirmed.isEmpty()) {
+            throw new DeadLetterNotConfirmedException(unconfirmed);
+        }
+    }
+
+    /**
+     * Every offset commit of the returned consumer waits for dead letters of its partitions first, a partition with an
+     * unconfirmed dead letter is committed (and seeks back) up to its source record only, so the record comes again
+     * and is recovered once more
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Consumer<K, V> confirmingCommits(Consumer<K, V> consumer, Duration timeout) {
+        var proxy = new ProxyFactory(consumer);
+        proxy.addAdvice((MethodInterceptor) invocation -> {
+            var arguments = invocation.getArguments();
+            var name = invocation.getMethod().getName();
+            if ((name.equals("commitSync") || name.equals("commitAsync"))
+                && arguments.length > 0 && arguments[0] instanceof Map<?, ?> offsets) {
+                arguments[0] = confirmed(consumer, (Map<TopicPartition, OffsetAndMetadata>) offsets, timeout);
+            }
+            return invocation.proceed();
+        });
+        return (Consumer<K, V>) proxy.getProxy();
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> confirmed(Consumer<?, ?> consumer,
+                                                             Map<TopicPartition, OffsetAndMetadata> offsets,
+                                                             Duration timeout) {
+        try {
+            awaitInFlight(offsets.keySet(), timeout);
+            return offsets;
+        } catch (DeadLetterNotConfirmedException e) {
+            var confirmed = new HashMap<>(offsets);
+            e.getOffsets().forEach((partition, offset) -> {
+                log.warn("Dead letter of {}@{} is not confirmed, it will be recovered again", partition, offset);
+                confirmed.computeIfPresent(partition, (__, committed) -> committed.offset() <= offset
+                    ? committed
+                    : new OffsetAndMetadata(offset, committed.leaderEpoch(), committed.metadata()));
+                if (consumer.assignment().contains(partition)) {
+                    consumer.seek(partition, offset);
+                }
+            });
+            return confirmed;
+        }
+    }
+
+    /**
+     * Dead letters of these source records (lowest offset per partition) failed or were not acknowledged in time
+     */
+    @Getter
+    public static class DeadLetterNotConfirmedException extends KafkaException {
+        private final Map<TopicPartition, Long> offsets;
+
+        public DeadLetterNotConfirmedException(Map<TopicPartition, Long> offsets) {
+            super("Dead letters are not confirmed for " + offsets);
+            this.offsets = offsets;
+        }
+    }
+
+    /**
+     * Compared by identity, the same record may be dead-lettered again while its earlier dead letter is in flight
+     */
+    private static final class Sent {
+        private final TopicPartition partition;
+        private final long offset;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Sent(TopicPartition partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.InvoiceProcessed;
+import bitxon.spring.kafka.reply.HashedWheelTimer;
+import bitxon.spring.kafka.reply.ReplyingClient;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "custom.invoice.client.enabled", havingValue = "true")
+public class InvoiceClientConfig {
+
+    @Bean
+    public HashedWheelTimer invoiceTimer(@Value("${custom.invoice.client.tick:10ms}") Duration tick,
+                                         @Value("${custom.invoice.client.ticks-per-wheel:512}") int ticksPerWheel) {
+        return new HashedWheelTimer("invoice", tick, ticksPerWheel);
+    }
+
+    /**
+     * Sends {@link Invoice} to {@code invoice-request} and completes with {@link InvoiceProcessed} that
+     * {@link bitxon.spring.kafka.listener.InvoiceForwardingListener InvoiceForwardingListener} (or any other instance)
+     * sends to {@code invoice-response}, see {@code reply.client.*} metrics
+     */
+    @Bean
+    public ReplyingClient<String, Object, InvoiceProcessed> invoiceClient(
+        KafkaTemplate<String, Object> kafkaTemplate,
+        HashedWheelTimer invoiceTimer,
+        @Value("${custom.invoice.client.timeout:5s}") Duration timeout,
+        @Value("${custom.invoice.client.max-in-flight:65536}") int maxInFlight
+    ) {
+        return new ReplyingClient<>("invoice", kafkaTemplate, "invoice-request", timeout, invoiceTimer, maxInFlight);
+    }
+
+    /**
+     * Every instance reads all replies with its own consumer group and picks those of its requests,
+     * error handler and interceptors of listener containers don't apply to replies
+     */
+    @Bean
+    public ConcurrentMessageListenerContainer<String, InvoiceProcessed> invoiceReplyContainer(
+        ConsumerFactory<String, InvoiceProcessed> consumerFactory,
+        ReplyingClient<String, Object, InvoiceProcessed> invoiceClient,
+        @Value("${custom.invoice.client.group-id}") String groupId
+    ) {
+        var properties = new ContainerProperties("invoice-response");
+        properties.setGroupId(groupId);
+        properties.setMessageListener(invoiceClient);
+        properties.getKafkaConsumerProperties().setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // only replies to own requests
+        properties.getKafkaConsumerProperties().setProperty("spring.json.value.default.type", InvoiceProcessed.class.getName());
+        return new ConcurrentMessageListenerContainer<>(consumerFactory, properties);
+    }
+}
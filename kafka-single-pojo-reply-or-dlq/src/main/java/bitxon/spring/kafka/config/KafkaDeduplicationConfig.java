@@ -0,0 +1,35 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.dedup.DeduplicationCache;
+import bitxon.spring.kafka.dedup.DeduplicationFilter;
+import bitxon.spring.kafka.dedup.DeduplicationFilter.KeyStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class KafkaDeduplicationConfig {
+
+    /**
+     * Hashes of processed records, {@code directory} keeps them across restarts
+     */
+    @Bean
+    public DeduplicationCache deduplicationCache(@Value("${custom.dedup.window:10m}") Duration window,
+                                                 @Value("${custom.dedup.capacity:100000}") int capacity,
+                                                 @Value("${custom.dedup.bloom:true}") boolean bloom,
+                                                 @Value("${custom.dedup.directory:}") String directory) {
+        return new DeduplicationCache(window, capacity, bloom, directory.isBlank() ? null : Path.of(directory));
+    }
+
+    /**
+     * Referenced by {@code @KafkaListener(filter = "deduplicationFilter")}
+     */
+    @Bean
+    public DeduplicationFilter<Object, Object> deduplicationFilter(@Value("${custom.dedup.key:offset}") String key,
+                                                                   DeduplicationCache deduplicationCache) {
+        return new DeduplicationFilter<>("invoice", KeyStrategy.parse(key), deduplicationCache);
+    }
+}
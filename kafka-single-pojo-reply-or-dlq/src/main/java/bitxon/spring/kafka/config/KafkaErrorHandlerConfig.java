@@ -1,6 +1,7 @@
 package bitxon.spring.kafka.config;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,13 +25,16 @@ public class KafkaErrorHandlerConfig {
      * If you want explicitly specify only retryable exception use
      * {@link DefaultErrorHandler#defaultFalse defaultFalse()} and
      * {@link DefaultErrorHandler#addRetryableExceptions addRetryableExceptions(...)}
+     * <p>
+     * Failed deliveries and dead letters are counted by {@link ListenerMetrics}
      */
     @Bean
-    public CommonErrorHandler commonErrorHandler(DeadLetterPublishingRecoverer dlqRecoverer) {
+    public CommonErrorHandler commonErrorHandler(DeadLetterPublishingRecoverer dlqRecoverer, ListenerMetrics listenerMetrics) {
         BackOff backOff = new FixedBackOff(100, 5);
 
-        var errorHandler = new DefaultErrorHandler(dlqRecoverer, backOff);
+        var errorHandler = new DefaultErrorHandler(listenerMetrics.recoverer("dlq", dlqRecoverer), backOff);
         errorHandler.addNotRetryableExceptions(CustomNonRetryableException.class);
+        errorHandler.setRetryListeners(listenerMetrics.retryListener());
 
         return errorHandler;
     }
@@ -0,0 +1,47 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.dedup.DeduplicationFilter;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.CompositeRecordInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+@Configuration
+public class KafkaMetricsConfig {
+
+    /**
+     * {@code kafka.listener.*} meters of all listeners, see actuator {@code /prometheus}
+     */
+    @Bean
+    public ListenerMetrics listenerMetrics(MeterRegistry meterRegistry, KafkaListenerEndpointRegistry registry) {
+        return new ListenerMetrics(meterRegistry, registry);
+    }
+
+    /**
+     * Container factory accepts only one interceptor, primary one is picked by
+     * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactoryConfigurer KafkaAnnotationDrivenConfiguration},
+     * metrics go first to measure the whole handling
+     */
+    @Bean
+    @Primary
+    @SuppressWarnings("unchecked")
+    public RecordInterceptor<Object, Object> recordInterceptor(
+        ListenerMetrics listenerMetrics,
+        DeduplicationFilter<Object, Object> deduplicationFilter
+    ) {
+        return new CompositeRecordInterceptor<>(listenerMetrics.recordInterceptor(), deduplicationFilter.interceptor());
+    }
+
+    /**
+     * Used by batch listener of {@code custom.invoice.transactions.batch.enabled: true}
+     */
+    @Bean
+    public BatchInterceptor<Object, Object> batchInterceptor(ListenerMetrics listenerMetrics) {
+        return listenerMetrics.batchInterceptor();
+    }
+}
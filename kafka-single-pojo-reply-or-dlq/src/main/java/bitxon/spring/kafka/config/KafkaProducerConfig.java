@@ -0,0 +1,40 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.codec.ContentFormat;
+import bitxon.spring.kafka.codec.ContentNegotiatingSerializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    /**
+     * Single producer for the whole application: {@code @SendTo} replies and DLQ records share batches and connections.
+     * <p>
+     * {@code byte[]} (records that were NOT deserialized) are passed through as is, everything else is written as JSON
+     * or in binary form depending on {@code custom.producer.format}.
+     * Batching, compression and idempotence are configured with {@code spring.kafka.producer.*} properties
+     *
+     * @see <a href="https://docs.spring.io/spring-kafka/reference/kafka/serdes.html#by-type">by-type</a>
+     */
+    @Bean
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public DefaultKafkaProducerFactoryCustomizer passThroughSerializerCustomizer(
+        @Value("${custom.producer.format:json}") String format
+    ) {
+        Map<Class<?>, Serializer<?>> delegates = new LinkedHashMap<>(); // byte[] must be checked before Object
+        delegates.put(byte[].class, new ByteArraySerializer());
+        delegates.put(Object.class, new ContentNegotiatingSerializer<>(ContentFormat.parse(format), new JsonSerializer<>()));
+
+        return producerFactory -> producerFactory.setValueSerializer((Serializer) new DelegatingByTypeSerializer(delegates, true)); // factory is DefaultKafkaProducerFactory<?, ?>
+    }
+}
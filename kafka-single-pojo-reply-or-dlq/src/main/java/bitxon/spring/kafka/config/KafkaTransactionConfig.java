@@ -0,0 +1,37 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AfterRollbackProcessor;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Exactly-once consume-transform-produce, enabled by {@code spring.kafka.producer.transaction-id-prefix}
+ * (see {@code application-exactly-once.yaml}): the reply and the consumed offsets are committed in one transaction.
+ * <p>
+ * With a transaction manager the container rolls back and calls {@link AfterRollbackProcessor} instead of
+ * {@link KafkaErrorHandlerConfig#commonErrorHandler CommonErrorHandler}
+ *
+ * @see <a href="https://docs.spring.io/spring-kafka/reference/kafka/exactly-once.html">exactly-once</a>
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.kafka.producer.transaction-id-prefix")
+public class KafkaTransactionConfig {
+
+    @Bean
+    public AfterRollbackProcessor<Object, Object> afterRollbackProcessor(DeadLetterPublishingRecoverer dlqRecoverer,
+                                                                         KafkaTemplate<Object, Object> kafkaTemplate,
+                                                                         ListenerMetrics listenerMetrics) {
+        var recoverer = listenerMetrics.recoverer("dlq", dlqRecoverer);
+        var processor = new DefaultAfterRollbackProcessor<>(recoverer, new FixedBackOff(100, 5), kafkaTemplate, true);
+        processor.addNotRetryableExceptions(CustomNonRetryableException.class);
+        processor.setRetryListeners(listenerMetrics.retryListener());
+        return processor;
+    }
+}
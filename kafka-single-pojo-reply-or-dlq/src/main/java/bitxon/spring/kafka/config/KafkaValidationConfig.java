@@ -1,5 +1,7 @@
 package bitxon.spring.kafka.config;
 
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import bitxon.spring.kafka.validation.RecordValidatorAdapter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.KafkaListenerConfigurer;
@@ -11,9 +13,11 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 public class KafkaValidationConfig implements KafkaListenerConfigurer {
 
     private final LocalValidatorFactoryBean validator;
+    private final ListenerMetrics listenerMetrics;
 
     @Override
     public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
-        registrar.setValidator(validator);
+        var recordValidator = new RecordValidatorAdapter(validator); // generated validators, Hibernate Validator for other types
+        registrar.setValidator(listenerMetrics.validator(recordValidator)); // kafka.listener.validate timer
     }
 }
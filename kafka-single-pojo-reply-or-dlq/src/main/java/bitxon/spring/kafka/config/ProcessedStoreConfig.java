@@ -0,0 +1,34 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.store.ProcessedStore;
+import bitxon.spring.kafka.store.ProcessedStores;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class ProcessedStoreConfig {
+
+    /**
+     * {@code type: memory} keeps last {@code capacity} records on heap,
+     * {@code off-heap}, {@code file} and {@code journal} keep up to {@code max-bytes} of records in binary form per listener
+     */
+    @Bean
+    public ProcessedStores processedStores(@Value("${custom.store.type:memory}") String type,
+                                           @Value("${custom.store.capacity:100000}") int capacity,
+                                           @Value("${custom.store.max-bytes:67108864}") int maxBytes,
+                                           @Value("${custom.store.directory:build/store}") String directory,
+                                           @Value("${custom.store.segment-bytes:8388608}") int segmentBytes,
+                                           @Value("${custom.store.fsync-interval:1s}") Duration fsyncInterval) {
+        return new ProcessedStores(type, capacity, maxBytes, Path.of(directory), segmentBytes, fsyncInterval);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ProcessedStore<Invoice> invoiceStore(ProcessedStores processedStores) {
+        return processedStores.create("invoice", Invoice.class);
+    }
+}
@@ -2,44 +2,121 @@ package bitxon.spring.kafka.listener;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
 import bitxon.spring.kafka.exception.CustomRetryableException;
+import bitxon.spring.kafka.logging.HotPathLog;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
 import bitxon.spring.kafka.model.Invoice;
 import bitxon.spring.kafka.model.InvoiceProcessed;
+import bitxon.spring.kafka.model.InvoiceValidator;
+import bitxon.spring.kafka.store.ProcessedStore;
+import bitxon.spring.kafka.validation.RecordValidator;
 import jakarta.validation.Valid;
 import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static bitxon.spring.kafka.exception.ErrorType.FAIL;
 import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
 
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class InvoiceForwardingListener {
     @Getter private final AtomicInteger attempt = new AtomicInteger();
-    @Getter private final ConcurrentLinkedQueue<Invoice> repository = new ConcurrentLinkedQueue<>();
+    @Getter private final ProcessedStore<Invoice> repository;
+
+    private final RecordValidator<Invoice> validator = new InvoiceValidator(); // generated, see validation-processor
+    private final HotPathLog<Invoice> invoiceLog;
+    private final DeadLetterPublishingRecoverer dlqRecoverer;
+    private final ListenerMetrics listenerMetrics;
 
     @KafkaListener(
+        id = "invoice",
+        idIsGroup = false,
         topics = "invoice-request",
-        properties = "spring.json.value.default.type=bitxon.spring.kafka.model.Invoice"
+        filter = "deduplicationFilter",
+        properties = "spring.json.value.default.type=bitxon.spring.kafka.model.Invoice",
+        autoStartup = "#{!${custom.invoice.transactions.batch.enabled:false}}"
     )
     @SendTo("invoice-response")
     // https://docs.spring.io/spring-kafka/reference/kafka/receiving-messages/annotation-send-to.html
-    public InvoiceProcessed handleInvoice(@Payload @Valid Invoice invoice) {
-        log.info("Invoice message: {}", invoice);
+    public InvoiceProcessed handleInvoice(@Payload @Valid Invoice invoice,
+                                          @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                          @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                          @Header(KafkaHeaders.OFFSET) long offset) {
+        invoiceLog.record(topic, partition, offset, invoice);
         attempt.incrementAndGet();
 
+        var reply = process(invoice);
+        repository.add(invoice);
+        return reply;
+    }
+
+    /**
+     * Batched transactions (see {@code application-exactly-once.yaml}): the container runs one transaction per poll
+     * of up to {@code max-records} invoices. Invoices that fail are dead-lettered in that transaction instead of
+     * rolling it back, so the replies of the others and the offsets of the whole poll are committed together
+     */
+    @KafkaListener(
+        id = "invoice-batch",
+        idIsGroup = false,
+        topics = "invoice-request",
+        batch = "true",
+        autoStartup = "${custom.invoice.transactions.batch.enabled:false}",
+        properties = {
+            "spring.json.value.default.type=bitxon.spring.kafka.model.Invoice",
+            "max.poll.records=${custom.invoice.transactions.batch.max-records:500}",
+            "fetch.max.wait.ms=${custom.invoice.transactions.batch.max-wait-ms:100}",
+            "fetch.min.bytes=${custom.invoice.transactions.batch.fetch-min-bytes:65536}"
+        }
+    )
+    @SendTo("invoice-response")
+    // https://docs.spring.io/spring-kafka/reference/kafka/receiving-messages/annotation-send-to.html
+    public List<InvoiceProcessed> handleInvoices(List<ConsumerRecord<String, Invoice>> records, Consumer<?, ?> consumer) {
+        var replies = new ArrayList<InvoiceProcessed>(records.size());
+        var processed = new ArrayList<Invoice>(records.size());
+        for (var rec : records) {
+            var invoice = rec.value(); // null if it failed to deserialize
+            invoiceLog.record(rec.topic(), rec.partition(), rec.offset(), invoice);
+            try {
+                validate(invoice);
+                attempt.incrementAndGet();
+                replies.add(process(invoice));
+                processed.add(invoice);
+            } catch (Exception ex) {
+                // sent by the transactional template and awaited, a failed send rolls back the whole poll
+                listenerMetrics.recoverer("dlq", dlqRecoverer).accept(rec, consumer, ex);
+            }
+        }
+        repository.addAll(processed);
+        return replies; // every element is sent as a separate record
+    }
+
+    private void validate(Invoice invoice) {
+        if (invoice == null) {
+            throw new CustomNonRetryableException("Entity must not be null");
+        }
+        if (!validator.isValid(invoice)) {
+            throw new CustomNonRetryableException("Invalid entity: " + invoice);
+        }
+    }
+
+    private InvoiceProcessed process(Invoice invoice) {
         switch (invoice.message()) {
             case FAIL_RETRY -> throw new CustomRetryableException(FAIL_RETRY);
             case FAIL -> throw new CustomNonRetryableException(FAIL);
         }
 
-        repository.add(invoice);
         return new InvoiceProcessed(invoice.id(), invoice.message());
     }
 
@@ -0,0 +1,73 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.InvoiceProcessed;
+import bitxon.spring.kafka.reply.ReplyingClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.invoice.client.enabled=true"
+})
+class InvoiceClientTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(10_000);
+
+    @Autowired
+    ReplyingClient<String, Object, InvoiceProcessed> invoiceClient;
+    @Autowired
+    ConcurrentMessageListenerContainer<String, InvoiceProcessed> invoiceReplyContainer;
+
+    @BeforeEach
+    void beforeEach() {
+        ContainerTestUtils.waitForAssignment(invoiceReplyContainer, 1); // replies sent before assignment are not read
+    }
+
+    @Test
+    void repliesCompleteTheirRequests() {
+        // when
+        var futures = IntStream.range(0, 1000)
+            .mapToObj(i -> invoiceClient.request("key" + i, new Invoice(i, "Msg " + i)))
+            .toList();
+
+        // then
+        assertThat(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))).succeedsWithin(TIMEOUT);
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).join()).isEqualTo(new InvoiceProcessed(i, "Msg " + i));
+        }
+        assertThat(invoiceClient.getInFlight()).as("Requests waiting for a reply")
+            .isZero();
+    }
+
+    @Test
+    void requestWithoutReplyTimesOut() {
+        // when
+        var future = invoiceClient.request("key", new Invoice(1, FAIL), Duration.ofMillis(1_000)); // goes to DLQ
+
+        // then
+        assertThat(future).failsWithin(TIMEOUT)
+            .withThrowableThat()
+            .withCauseInstanceOf(TimeoutException.class);
+        assertThat(invoiceClient.getInFlight()).as("Requests waiting for a reply")
+            .isZero();
+    }
+}
@@ -0,0 +1,91 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.codec.ContentFormat;
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.InvoiceForwardingListener;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.InvoiceProcessed;
+import bitxon.spring.kafka.utils.KafkaReader;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "custom.producer.format=binary")
+class InvoiceForwardingListenerBinaryTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(3_000);
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class BinaryWriterConfig {
+        @Bean
+        public KafkaWriter binaryKafkaWriter(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+            return new KafkaWriter(bootstrapServers, "invoice-request", ContentFormat.BINARY);
+        }
+    }
+
+    @Qualifier("kafkaWriter")
+    @Autowired
+    KafkaWriter jsonKafkaWriter;
+    @Qualifier("binaryKafkaWriter")
+    @Autowired
+    KafkaWriter binaryKafkaWriter;
+    @Autowired
+    KafkaReader<InvoiceProcessed> outputReader;
+    @Autowired
+    InvoiceForwardingListener invoiceForwardingListener;
+
+    @BeforeEach
+    void beforeEach() {
+        invoiceForwardingListener.getAttempt().set(0);
+        invoiceForwardingListener.getRepository().clear();
+        outputReader.clear();
+    }
+
+    @Test
+    void validBinaryRequest() {
+        // when
+        binaryKafkaWriter.send(new Invoice(1, "Msg A"));
+
+        // then
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(invoiceForwardingListener.getRepository()).containsExactly(new Invoice(1, "Msg A"));
+            assertThat(outputReader.find(it -> true)).singleElement().isEqualTo(new InvoiceProcessed(1, "Msg A"));
+        });
+    }
+
+    @Test
+    void jsonAndBinaryRequestsShareTopic() {
+        // when
+        jsonKafkaWriter.send(new Invoice(1, "Msg JSON"));
+        binaryKafkaWriter.send(new Invoice(2, "Msg Binary"));
+
+        // then
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(invoiceForwardingListener.getRepository()).containsExactlyInAnyOrder(
+                new Invoice(1, "Msg JSON"),
+                new Invoice(2, "Msg Binary")
+            );
+            assertThat(outputReader.find(it -> true)).containsExactlyInAnyOrder(
+                new InvoiceProcessed(1, "Msg JSON"),
+                new InvoiceProcessed(2, "Msg Binary")
+            );
+        });
+    }
+}
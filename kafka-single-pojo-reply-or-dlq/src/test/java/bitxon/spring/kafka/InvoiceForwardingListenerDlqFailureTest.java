@@ -0,0 +1,106 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.model.InvoiceProcessed;
+import bitxon.spring.kafka.utils.KafkaReader;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Dead letters are sent asynchronously, source offset must not be committed until the broker confirmed its dead letter
+ */
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class InvoiceForwardingListenerDlqFailureTest {
+    public static final Duration DELAY = Duration.ofMillis(3_000);
+    public static final Duration TIMEOUT = Duration.ofMillis(10_000);
+
+    @MockitoSpyBean(name = "kafkaTemplate")
+    KafkaTemplate<Object, Object> kafkaTemplate;
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    KafkaReader<InvoiceProcessed> outputReader;
+    @Autowired
+    KafkaReader<String> dlqReader;
+    @Value("${spring.kafka.bootstrap-servers}")
+    String bootstrapServers;
+    @Value("${spring.kafka.consumer.group-id}")
+    String groupId;
+
+    @Test
+    void offsetIsNotCommittedUntilDeadLetterIsSent() {
+        // given
+        var dlqAvailable = new AtomicBoolean(false);
+        doAnswer(invocation -> dlqAvailable.get()
+            ? invocation.callRealMethod()
+            : CompletableFuture.failedFuture(new KafkaException("DLQ is not available"))
+        ).when(kafkaTemplate).send(argThat((ProducerRecord<Object, Object> rec) -> "invoice-dlq".equals(rec.topic())));
+        var output = new InvoiceProcessed(2, "Msg A");
+
+        // when
+        kafkaWriter.send(new Invoice(1, FAIL)); // offset 0, dead letter fails
+        kafkaWriter.send(new Invoice(2, "Msg A")); // offset 1, processed
+
+        // then
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            assertThat(outputReader.find(all())).contains(output)
+        );
+        await().pollDelay(DELAY).untilAsserted(() -> {
+            assertThat(dlqReader.find(all())).isEmpty();
+            assertThat(committedOffset()).as("Committed offset").isZero();
+        });
+
+        // when
+        dlqAvailable.set(true);
+
+        // then
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(dlqReader.find(all())).isNotEmpty();
+            assertThat(committedOffset()).as("Committed offset").isEqualTo(2);
+        });
+    }
+
+
+    private long committedOffset() throws Exception {
+        try (var admin = Admin.create(Map.<String, Object>of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            var committed = admin.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get()
+                .get(new TopicPartition("invoice-request", 0));
+            return committed == null ? 0 : committed.offset();
+        }
+    }
+
+    private static <T> Predicate<T> all() {
+        return it -> true;
+    }
+
+}
@@ -0,0 +1,94 @@
+package bitxon.spring.kafka.benchmark;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Compares invoices/s of at-least-once, exactly-once (transaction per invoice) and exactly-once (transaction per poll).
+ * Replies are counted with {@code read_committed} consumer, so only committed replies are counted.
+ * <p>
+ * Run with {@code ./gradlew kafka-single-pojo-reply-or-dlq:benchmark}
+ */
+@Tag("benchmark")
+abstract class DeliveryGuaranteeBenchmark {
+    private static final int INVOICES = 10_000;
+    private static final Duration TIME_LIMIT = Duration.ofMinutes(2);
+
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Value("${spring.kafka.bootstrap-servers}")
+    String bootstrapServers;
+
+    @Test
+    void throughput() {
+        try (var replies = committedRepliesConsumer()) {
+            var start = System.nanoTime();
+            for (int i = 0; i < INVOICES; i++) {
+                kafkaWriter.send(new Invoice(i, "Msg " + i));
+            }
+            kafkaWriter.flush();
+
+            var received = 0;
+            var deadline = start + TIME_LIMIT.toNanos();
+            while (received < INVOICES && System.nanoTime() < deadline) {
+                received += replies.poll(Duration.ofMillis(100)).count();
+            }
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            System.out.printf("%-26s | replies %,6d / %,6d | %,8.0f invoices/s%n",
+                getClass().getSimpleName(), received, INVOICES, received * 1000.0 / elapsed.toMillis());
+        }
+    }
+
+    private KafkaConsumer<byte[], byte[]> committedRepliesConsumer() {
+        Map<String, Object> config = Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+            ConsumerConfig.GROUP_ID_CONFIG, "benchmark-" + UUID.randomUUID(),
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+            ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed"
+        );
+        var consumer = new KafkaConsumer<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        consumer.subscribe(List.of("invoice-response"));
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+
+
+    @Import({TestContainersConfig.class, TestUtilsConfig.class})
+    @SpringBootTest(webEnvironment = RANDOM_PORT)
+    static class AtLeastOnce extends DeliveryGuaranteeBenchmark {
+    }
+
+    @Import({TestContainersConfig.class, TestUtilsConfig.class})
+    @SpringBootTest(webEnvironment = RANDOM_PORT)
+    @ActiveProfiles("exactly-once")
+    static class ExactlyOncePerRecord extends DeliveryGuaranteeBenchmark {
+    }
+
+    @Import({TestContainersConfig.class, TestUtilsConfig.class})
+    @SpringBootTest(webEnvironment = RANDOM_PORT, properties = "custom.invoice.transactions.batch.enabled=true")
+    @ActiveProfiles("exactly-once")
+    static class ExactlyOnceBatched extends DeliveryGuaranteeBenchmark {
+    }
+}
@@ -0,0 +1,49 @@
+package bitxon.spring.kafka.load;
+
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.InvoiceForwardingListener;
+import bitxon.spring.kafka.model.Invoice;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Run with {@code ./gradlew kafka-single-pojo-reply-or-dlq:load -Pload.rate=5000 -Pload.fail=0.01}
+ */
+@Tag("load")
+@Import(TestUtilsConfig.class)
+@EmbeddedKafka(topics = {"invoice-request", "invoice-response", "invoice-dlq"}, partitions = 3)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+class InvoiceForwardingListenerLoadTest {
+
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    InvoiceForwardingListener invoiceForwardingListener;
+
+    @Test
+    void invoice() {
+        var harness = new LoadHarness(LoadProfile.fromSystemProperties(), FAIL, FAIL_RETRY);
+
+        var report = harness.run("invoice",
+            (key, message) -> kafkaWriter.send(key, new Invoice(1, message)),
+            () -> {
+                var invoice = invoiceForwardingListener.getRepository().poll();
+                return invoice == null ? null : invoice.message();
+            }
+        ).print(System.out);
+
+        assertThat(report.completed()).isEqualTo(report.expected());
+    }
+}
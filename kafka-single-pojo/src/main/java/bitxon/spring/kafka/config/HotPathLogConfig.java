@@ -0,0 +1,25 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.logging.HotPathLog;
+import bitxon.spring.kafka.logging.HotPathLogs;
+import bitxon.spring.kafka.logging.HotPathLogsConfig;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.model.Payment;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@Import(HotPathLogsConfig.class)
+public class HotPathLogConfig {
+
+    @Bean
+    public HotPathLog<Order> orderLog(HotPathLogs hotPathLogs) {
+        return hotPathLogs.create("order", Order.class);
+    }
+
+    @Bean
+    public HotPathLog<Payment> paymentLog(HotPathLogs hotPathLogs) {
+        return hotPathLogs.create("payment", Payment.class);
+    }
+}
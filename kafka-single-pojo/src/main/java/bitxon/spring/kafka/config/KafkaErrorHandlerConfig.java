@@ -1,6 +1,7 @@
 package bitxon.spring.kafka.config;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,15 +25,31 @@ public class KafkaErrorHandlerConfig {
      * If you want explicitly specify only retryable exception use
      * {@link org.springframework.kafka.listener.DefaultErrorHandler#defaultFalse defaultFalse()} and
      * {@link org.springframework.kafka.listener.DefaultErrorHandler#addRetryableExceptions addRetryableExceptions(...)}
+     * <p>
+     * Failed deliveries and recovered records are counted by {@link ListenerMetrics}
      */
     @Bean
-    public CommonErrorHandler commonErrorHandler() {
-        BackOff backOff = new FixedBackOff(100, 5);
-        ConsumerRecordRecoverer recoverer = (__, exception) -> log.error("Processing failed because:", exception);
-
-        var errorHandler = new DefaultErrorHandler(recoverer, backOff);
+    public CommonErrorHandler commonErrorHandler(ListenerMetrics listenerMetrics,
+                                                 BackOff listenerBackOff,
+                                                 ConsumerRecordRecoverer listenerRecoverer) {
+        var errorHandler = new DefaultErrorHandler(listenerRecoverer, listenerBackOff);
         errorHandler.addNotRetryableExceptions(CustomNonRetryableException.class);
+        errorHandler.setRetryListeners(listenerMetrics.retryListener());
 
         return errorHandler;
     }
+
+    /**
+     * Also used for orders processed by workers, see {@link KafkaOrderConfig#orderRetry orderRetry}
+     */
+    @Bean
+    public BackOff listenerBackOff() {
+        return new FixedBackOff(100, 5);
+    }
+
+    @Bean
+    public ConsumerRecordRecoverer listenerRecoverer(ListenerMetrics listenerMetrics) {
+        ConsumerRecordRecoverer recoverer = (__, exception) -> log.error("Processing failed because:", exception);
+        return listenerMetrics.recoverer("log", recoverer);
+    }
 }
@@ -0,0 +1,37 @@
+package bitxon.spring.kafka.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+@Configuration
+public class KafkaExecutorConfig {
+
+    /**
+     * Consumer threads of listener containers, {@code threads: virtual} runs handler invocations on virtual threads
+     * so blocking handlers don't pin an OS thread
+     */
+    @Bean
+    public AsyncTaskExecutor listenerTaskExecutor(@Value("${custom.listener.threads:platform}") String threads) {
+        var executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+        executor.setVirtualThreads("virtual".equals(threads));
+        return executor;
+    }
+
+    /**
+     * This will be applied to containers created by kafkaListenerContainerFactory specified in:
+     * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactory KafkaAnnotationDrivenConfiguration}
+     * (wrapped by {@link KafkaRebalanceConfig#containerCustomizer containerCustomizer})
+     */
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> listenerTaskExecutorCustomizer(
+        @Qualifier("listenerTaskExecutor") AsyncTaskExecutor listenerTaskExecutor
+    ) {
+        return container -> container.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+    }
+}
@@ -0,0 +1,38 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.CompositeRecordInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+@Configuration
+public class KafkaMetricsConfig {
+
+    /**
+     * {@code kafka.listener.*} meters of all listeners, see actuator {@code /prometheus}
+     */
+    @Bean
+    public ListenerMetrics listenerMetrics(MeterRegistry meterRegistry, KafkaListenerEndpointRegistry registry) {
+        return new ListenerMetrics(meterRegistry, registry);
+    }
+
+    /**
+     * Container factory accepts only one interceptor, primary one is picked by
+     * {@link org.springframework.boot.autoconfigure.kafka.KafkaAnnotationDrivenConfiguration#kafkaListenerContainerFactoryConfigurer KafkaAnnotationDrivenConfiguration}
+     * ({@code orderKafkaListenerContainerFactory} replaces it), metrics go first to measure the whole handling
+     */
+    @Bean
+    @Primary
+    @SuppressWarnings("unchecked")
+    public RecordInterceptor<Object, Object> recordInterceptor(
+        ListenerMetrics listenerMetrics,
+        @Qualifier("deduplicationInterceptor") RecordInterceptor<Object, Object> deduplicationInterceptor
+    ) {
+        return new CompositeRecordInterceptor<>(listenerMetrics.recordInterceptor(), deduplicationInterceptor);
+    }
+}
@@ -0,0 +1,106 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import bitxon.spring.kafka.metrics.ListenerMetrics;
+import bitxon.spring.kafka.utils.KeyOrderedExecutor;
+import bitxon.spring.kafka.utils.PartitionBackpressure;
+import bitxon.spring.kafka.utils.VirtualThreadTaskExecutor;
+import bitxon.spring.kafka.utils.WorkerRetry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.backoff.BackOff;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaOrderConfig {
+
+    /**
+     * Records of one partition are dispatched to {@link #orderExecutor orderExecutor} and acknowledged out of order,
+     * the container defers the commit until every earlier offset of that partition has been acknowledged.
+     * The listener returns before an order is processed, so only metrics intercept it, {@code OrderListener} marks
+     * processed orders for {@code deduplicationFilter} itself
+     *
+     * @see <a href="https://docs.spring.io/spring-kafka/reference/kafka/receiving-messages/ooo-commits.html">ooo-commits</a>
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> orderKafkaListenerContainerFactory(
+        ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+        ConsumerFactory<Object, Object> consumerFactory,
+        @Qualifier("listenerTaskExecutor") AsyncTaskExecutor listenerTaskExecutor,
+        ListenerMetrics listenerMetrics
+    ) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, consumerFactory);
+        factory.setRecordInterceptor(listenerMetrics.recordInterceptor()); // instead of the primary one
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setAckDiscarded(true); // duplicates dropped by deduplicationFilter must not block the commit
+        factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        return factory;
+    }
+
+    /**
+     * Keeps order per record key, {@code workers: 0} processes records on the consumer thread
+     */
+    @Bean
+    public KeyOrderedExecutor orderExecutor(@Qualifier("orderTaskExecutor") TaskExecutor orderTaskExecutor) {
+        return new KeyOrderedExecutor(orderTaskExecutor);
+    }
+
+    /**
+     * Failure of an order is not seen by the container's error handler once the listener returned, so workers retry
+     * it with the same back off and recoverer as {@link KafkaErrorHandlerConfig#commonErrorHandler commonErrorHandler}
+     * before the order is acknowledged
+     */
+    @Bean
+    public WorkerRetry orderRetry(BackOff listenerBackOff, ConsumerRecordRecoverer listenerRecoverer) {
+        return new WorkerRetry(listenerBackOff, listenerRecoverer, CustomNonRetryableException.class);
+    }
+
+    /**
+     * Pauses partitions of {@code order} listener while their orders are waiting for workers,
+     * so {@code max-poll-records} can be raised without risking {@code max.poll.interval.ms} rebalances
+     */
+    @Bean
+    public PartitionBackpressure orderBackpressure(
+        KafkaListenerEndpointRegistry registry,
+        @Value("${custom.order.backpressure.max-in-flight-per-partition:100}") int maxInFlightPerPartition,
+        @Value("${custom.order.backpressure.max-in-flight:1000}") int maxInFlight,
+        @Value("${custom.order.backpressure.latency-threshold:5s}") Duration latencyThreshold
+    ) {
+        return new PartitionBackpressure("order", () -> registry.getListenerContainer("order"),
+            maxInFlightPerPartition, maxInFlight, latencyThreshold);
+    }
+
+    /**
+     * {@code threads: virtual} - one virtual thread per in-flight order, {@code workers} limits how many of them run at once
+     */
+    @Bean
+    public TaskExecutor orderTaskExecutor(@Value("${custom.order.workers:0}") int workers,
+                                          @Value("${custom.listener.threads:platform}") String threads) {
+        if (workers <= 0) {
+            return new SyncTaskExecutor();
+        }
+        if ("virtual".equals(threads)) {
+            return new VirtualThreadTaskExecutor("order-worker-", workers); // closed as bean
+        }
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("order-worker-");
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        return executor;
+    }
+}
@@ -0,0 +1,70 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.exception.CustomNonRetryableException;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicSchedulerWrapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Map;
+
+/**
+ * Non-blocking retries: failed payment is forwarded to {@code payment-retry-N} topics (one per delay tier)
+ * instead of re-seeking the main partition, after the last attempt it ends up in {@code payment-dlt}.
+ * <p>
+ * {@link CustomNonRetryableException} goes straight to {@code payment-dlt}
+ * <p>
+ * Records are forwarded with {@code acks=all} whatever {@code spring.kafka.producer.acks} is, the offset of
+ * the failed record is committed once it is forwarded, so with {@code acks=0} a lost send would lose the payment
+ *
+ * @see <a href="https://docs.spring.io/spring-kafka/reference/retrytopic.html">retrytopic</a>
+ */
+@Configuration
+@ConditionalOnProperty(name = "custom.payment.retry-topics.enabled", havingValue = "true")
+public class KafkaRetryTopicConfig implements DisposableBean {
+    private final KafkaTemplate<Object, Object> retryTemplate; // not a bean, it would replace the auto-configured one
+
+    public KafkaRetryTopicConfig(ProducerFactory<Object, Object> producerFactory) {
+        this.retryTemplate = new KafkaTemplate<>(producerFactory, Map.of(ProducerConfig.ACKS_CONFIG, "all"));
+    }
+
+    @Bean
+    public RetryTopicConfiguration paymentRetryTopicConfiguration(
+        @Value("${custom.payment.retry-topics.attempts:6}") int attempts,
+        @Value("${custom.payment.retry-topics.delay:100}") long delay,
+        @Value("${custom.payment.retry-topics.multiplier:2.0}") double multiplier,
+        @Value("${custom.payment.retry-topics.max-delay:10000}") long maxDelay
+    ) {
+        return RetryTopicConfigurationBuilder.newInstance()
+            .includeTopic("payment")
+            .maxAttempts(attempts)
+            .exponentialBackoff(delay, multiplier, maxDelay, true) // true - adds jitter
+            .suffixTopicsWithIndexValues() // topic names must not depend on random delay
+            .notRetryOn(CustomNonRetryableException.class)
+            .autoCreateTopics(true, 1, (short) 1)
+            .create(retryTemplate);
+    }
+
+    /**
+     * Retry topic containers are paused until the delay of the record is elapsed, this scheduler resumes them
+     */
+    @Bean
+    public RetryTopicSchedulerWrapper retryTopicSchedulerWrapper() {
+        var scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("payment-retry-");
+        return new RetryTopicSchedulerWrapper(scheduler); // wrapper initializes and destroys the scheduler
+    }
+
+    @Override
+    public void destroy() {
+        retryTemplate.destroy(); // closes producers of its own copy of the factory
+    }
+}
@@ -0,0 +1,82 @@
+package bitxon.spring.kafka.config;
+
+import bitxon.spring.kafka.metrics.ConsumerLagMonitor;
+import bitxon.spring.kafka.utils.ConcurrencyScaler;
+import bitxon.spring.kafka.utils.PartitionBackpressure;
+import org.apache.kafka.clients.admin.Admin;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "custom.order.scaling.enabled", havingValue = "true")
+public class KafkaScalingConfig {
+
+    /**
+     * Scales consumers of {@code order} listener container (and workers if {@code workers > 0}) from lag of the group
+     * reported by {@code consumerLagMonitor} (needs {@code custom.lag.enabled}), see {@code scaling.*} metrics.
+     * Orders in flight of {@code orderBackpressure} tell how busy workers (or consumers) are
+     */
+    @Bean
+    public ConcurrencyScaler orderScaler(
+        KafkaListenerEndpointRegistry registry,
+        ConsumerLagMonitor consumerLagMonitor,
+        KafkaAdmin kafkaAdmin,
+        PartitionBackpressure orderBackpressure,
+        @Qualifier("orderTaskExecutor") TaskExecutor orderTaskExecutor,
+        @Value("${spring.kafka.consumer.group-id}") String groupId,
+        @Value("${custom.order.scaling.min-concurrency:1}") int minConcurrency,
+        @Value("${custom.order.scaling.max-concurrency:3}") int maxConcurrency,
+        @Value("${custom.order.scaling.min-workers:1}") int minWorkers,
+        @Value("${custom.order.scaling.max-workers:16}") int maxWorkers,
+        @Value("${custom.order.scaling.target-drain-time:30s}") Duration targetDrainTime,
+        @Value("${custom.order.scaling.interval:10s}") Duration interval,
+        @Value("${custom.order.scaling.up-intervals:2}") int upIntervals,
+        @Value("${custom.order.scaling.down-intervals:6}") int downIntervals,
+        @Value("${custom.order.scaling.cooldown:60s}") Duration cooldown
+    ) {
+        var settings = new ConcurrencyScaler.Settings(minConcurrency, maxConcurrency, minWorkers, maxWorkers,
+            targetDrainTime, interval, upIntervals, downIntervals, cooldown);
+        var admin = Admin.create(kafkaAdmin.getConfigurationProperties()); // closed with the scaler
+        return new ConcurrencyScaler("order", () -> registry.getListenerContainer("order"), consumerLagMonitor,
+            groupId, settings, workerPool(orderTaskExecutor), orderBackpressure::getInFlight, admin);
+    }
+
+    /**
+     * Pool of {@link KafkaOrderConfig#orderTaskExecutor orderTaskExecutor}, {@code null} for {@code workers: 0}
+     * (orders are processed on the consumer thread)
+     */
+    private static ConcurrencyScaler.Resizable workerPool(TaskExecutor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            return new ConcurrencyScaler.Resizable() {
+                @Override
+                public int size() {
+                    return pool.getMaxPoolSize();
+                }
+
+                @Override
+                public void resize(int size) {
+                    if (size > pool.getMaxPoolSize()) { // core size can't exceed max size
+                        pool.setMaxPoolSize(size);
+                        pool.setCorePoolSize(size);
+                    } else {
+                        pool.setCorePoolSize(size);
+                        pool.setMaxPoolSize(size);
+                    }
+                }
+            };
+        }
+        if (executor instanceof ConcurrencyScaler.Resizable virtual) { // VirtualThreadTaskExecutor
+            return virtual;
+        }
+        return null;
+    }
+}
@@ -1,38 +1,83 @@
 package bitxon.spring.kafka.listener;
 
+import bitxon.spring.kafka.dedup.DeduplicationFilter;
+import bitxon.spring.kafka.logging.HotPathLog;
 import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.store.ProcessedStore;
+import bitxon.spring.kafka.utils.KeyOrderedExecutor;
+import bitxon.spring.kafka.utils.PartitionBackpressure;
+import bitxon.spring.kafka.utils.WorkerRetry;
 import jakarta.validation.Valid;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class OrderListener {
     @Getter private final AtomicInteger attempt = new AtomicInteger();
-    @Getter private final ConcurrentLinkedQueue<Order> repository = new ConcurrentLinkedQueue<>();
+    @Getter private final ProcessedStore<Order> repository;
+
+    private final HotPathLog<Order> orderLog;
+    private final KeyOrderedExecutor orderExecutor;
+    private final PartitionBackpressure orderBackpressure;
+    private final WorkerRetry orderRetry;
+    private final DeduplicationFilter<Object, Object> deduplicationFilter;
 
     @KafkaListener(
+        id = "order",
+        idIsGroup = false,
         topics = "order",
+        filter = "deduplicationFilter",
         properties = "spring.json.value.default.type=bitxon.spring.kafka.model.Order",
-        concurrency = "3"
+        concurrency = "${custom.order.concurrency:3}", // changed at runtime by orderScaler if enabled
+        containerFactory = "orderKafkaListenerContainerFactory"
     )
-    public void handleOrder(@Payload @Valid Order order) {
-        log.info("Order message: {}", order);
+    // https://docs.spring.io/spring-kafka/reference/kafka/receiving-messages/ooo-commits.html
+    public void handleOrder(@Payload @Valid Order order,
+                            @Header(name = KafkaHeaders.RECEIVED_KEY, required = false) String key,
+                            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                            @Header(KafkaHeaders.OFFSET) long offset,
+                            Acknowledgment acknowledgment) {
+        orderLog.record(topic, partition, offset, order);
         attempt.incrementAndGet();
 
+        var rec = new ConsumerRecord<>(topic, partition, offset, key, order);
+        var permit = orderBackpressure.acquire(topic, partition); // may pause the partition
+        orderExecutor.execute(key, () -> orderRetry.run(rec, () -> handleOrder(rec))) // retried, then recovered
+            .whenComplete((__, exception) -> {
+                try {
+                    if (exception != null) { // not even recovered, the commit stops before it until the partition is reassigned
+                        log.error("Recovery of {}-{}@{} failed because:", topic, partition, offset, exception);
+                        return;
+                    }
+                    acknowledgment.acknowledge();
+                } finally {
+                    permit.release(); // last, no in-flight records means every ack is queued (see RebalanceMetrics)
+                }
+            });
+    }
+
+    private void handleOrder(ConsumerRecord<String, Order> rec) {
         try {
             Thread.sleep(2000); // pretend that this is long-running operation
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
 
-        repository.add(order);
+        repository.add(rec.value());
+        deduplicationFilter.markProcessed(rec); // not when recovered, like the interceptor of other listeners
     }
 
 }
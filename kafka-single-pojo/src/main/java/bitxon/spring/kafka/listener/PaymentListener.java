@@ -2,32 +2,43 @@ package bitxon.spring.kafka.listener;
 
 import bitxon.spring.kafka.exception.CustomNonRetryableException;
 import bitxon.spring.kafka.exception.CustomRetryableException;
+import bitxon.spring.kafka.logging.HotPathLog;
 import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.store.ProcessedStore;
 import jakarta.validation.Valid;
 import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static bitxon.spring.kafka.exception.ErrorType.FAIL;
 import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
 
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class PaymentListener {
     @Getter private final AtomicInteger attempt = new AtomicInteger();
-    @Getter private final ConcurrentLinkedQueue<Payment> repository = new ConcurrentLinkedQueue<>();
+    @Getter private final ProcessedStore<Payment> repository;
+
+    private final HotPathLog<Payment> paymentLog;
 
     @KafkaListener(
+        id = "payment",
+        idIsGroup = false,
         topics = "payment",
+        filter = "deduplicationFilter",
         properties = "spring.json.value.default.type=bitxon.spring.kafka.model.Payment"
     )
-    public void handlePayment(@Payload @Valid Payment payment) {
-        log.info("Payment message: {}", payment);
+    public void handlePayment(@Payload @Valid Payment payment,
+                              @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                              @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                              @Header(KafkaHeaders.OFFSET) long offset) {
+        paymentLog.record(topic, partition, offset, payment);
         attempt.incrementAndGet();
 
         switch (payment.message()) {
@@ -0,0 +1,63 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.OrderListener;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import bitxon.spring.kafka.utils.PartitionBackpressure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.order.workers=4",
+    "custom.order.backpressure.max-in-flight-per-partition=2"
+})
+class OrderListenerBackpressureTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(20_000);
+
+    @Qualifier("orderKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    OrderListener orderListener;
+    @Autowired
+    PartitionBackpressure orderBackpressure;
+
+    @BeforeEach
+    void beforeEach() {
+        orderListener.getAttempt().set(0);
+        orderListener.getRepository().clear();
+    }
+
+    @Test
+    void partitionIsPausedAndResumed() {
+        var pausesBefore = orderBackpressure.getPauses();
+        for (int i = 0; i < 6; i++) {
+            kafkaWriter.send("same-partition", new Order("Product" + i, 1)); // one key - one partition, orders run one by one (2 sec each)
+        }
+
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(orderListener.getRepository()).as("Number entities processed")
+                .hasSize(6);
+            assertThat(orderBackpressure.getPaused()).as("Paused partitions")
+                .isEmpty();
+        });
+        assertThat(orderBackpressure.getPauses()).as("Number of pauses")
+            .isGreaterThan(pausesBefore);
+    }
+}
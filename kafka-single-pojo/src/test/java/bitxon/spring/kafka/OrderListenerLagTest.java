@@ -0,0 +1,82 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.OrderListener;
+import bitxon.spring.kafka.metrics.ConsumerLagMonitor;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.lag.poll-interval=500ms"
+})
+class OrderListenerLagTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(20_000);
+
+    @Qualifier("orderKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    OrderListener orderListener;
+    @Autowired
+    ConsumerLagMonitor consumerLagMonitor;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Value("${spring.kafka.consumer.group-id}")
+    String groupId;
+
+    @BeforeEach
+    void beforeEach() {
+        orderListener.getAttempt().set(0);
+        orderListener.getRepository().clear();
+    }
+
+    @Test
+    void lagGrowsAndDrains() {
+        for (int i = 0; i < 5; i++) {
+            kafkaWriter.send("same-partition", new Order("Product" + i, 1)); // one key - one partition, 2 sec each
+        }
+
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(consumerLagMonitor.getLag(groupId, "order")).as("Lag")
+                .isPositive();
+            assertThat(consumerLagMonitor.getTimeLag(groupId, "order")).as("Time lag")
+                .isPositive();
+            assertThat(gauge("kafka.consumer.lag")).as("Lag gauge")
+                .isPositive();
+        });
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(orderListener.getRepository()).as("Number entities processed")
+                .hasSize(5);
+            assertThat(consumerLagMonitor.getLag(groupId, "order")).as("Lag")
+                .isZero();
+            assertThat(gauge("kafka.consumer.lag.seconds")).as("Time lag gauge")
+                .isZero();
+        });
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.find(name).tag("group", groupId).tag("topic", "order").gauges().stream()
+            .mapToDouble(Gauge::value)
+            .sum();
+    }
+}
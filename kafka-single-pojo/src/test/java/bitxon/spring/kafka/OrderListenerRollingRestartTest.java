@@ -0,0 +1,134 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.OrderListener;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Restarts consumers of {@code order} listener one by one (as a rolling deploy of 3 instances would) while orders keep
+ * coming, rebalance metrics show that with static membership and cooperative-sticky assignor only the restarted
+ * consumer gives up its partition and gets the same one back. The longest time without a processed order is only
+ * reported in assertion descriptions, it depends on the machine
+ */
+@Import(TestUtilsConfig.class)
+@EmbeddedKafka(topics = {"order", "payment"}, partitions = 3)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "custom.consumer.instance-id=rolling-restart-test",
+    "custom.lag.enabled=false"
+})
+class OrderListenerRollingRestartTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(60_000);
+
+    @Qualifier("orderKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    OrderListener orderListener;
+    @Autowired
+    KafkaListenerEndpointRegistry registry;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void beforeEach() {
+        orderListener.getAttempt().set(0);
+        orderListener.getRepository().clear();
+    }
+
+    @Test
+    void rollingRestartKeepsPartitionsOfOtherConsumers() {
+        var container = (ConcurrentMessageListenerContainer<?, ?>) registry.getListenerContainer("order");
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            assertThat(container.getContainers()).as("Consumers with a partition")
+                .hasSize(3)
+                .allSatisfy(child -> assertThat(child.getAssignedPartitions()).isNotEmpty())
+        );
+        var moved = partitions("revoked") + partitions("lost");
+        var assigned = partitions("assigned");
+
+        var sent = new AtomicInteger();
+        var processedAt = new CopyOnWriteArrayList<Long>();
+        var executor = Executors.newScheduledThreadPool(2);
+        executor.scheduleAtFixedRate(() -> { // a bit more than 3 consumers can handle, so none of them is idle
+            var i = sent.getAndIncrement();
+            kafkaWriter.send("key" + i, new Order("Product" + i, 1));
+        }, 0, 500, TimeUnit.MILLISECONDS);
+        var seen = new AtomicInteger();
+        executor.scheduleAtFixedRate(() -> {
+            var size = orderListener.getRepository().size();
+            if (size > seen.getAndSet(size)) {
+                processedAt.add(System.nanoTime());
+            }
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        await().atMost(TIMEOUT).until(() -> processedAt.size() >= 3);
+        var restartStart = System.nanoTime();
+        for (var child : container.getContainers()) {
+            var partitions = Set.copyOf(child.getAssignedPartitions());
+            child.stop(); // waits for the order in progress
+            child.start();
+            await().atMost(TIMEOUT).untilAsserted(() ->
+                assertThat(child.getAssignedPartitions()).as("Partitions of restarted consumer")
+                    .containsExactlyInAnyOrderElementsOf(partitions)
+            );
+        }
+        var restartEnd = System.nanoTime();
+        executor.shutdownNow();
+
+        var report = "rolling restart took %d ms, longest gap between processed orders %d ms".formatted(
+            Duration.ofNanos(restartEnd - restartStart).toMillis(),
+            longestGap(processedAt, restartStart, restartEnd).toMillis());
+        assertThat(partitions("revoked") + partitions("lost") - moved).as("Partitions revoked or lost, " + report)
+            .isLessThanOrEqualTo(3); // only restarted consumers give up theirs, eager rebalances would revoke 9
+        assertThat(partitions("assigned") - assigned).as("Partitions assigned, " + report)
+            .isEqualTo(3); // one to each restarted consumer, others get nothing new
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            assertThat(orderListener.getRepository()).as("Number entities processed")
+                .hasSize(sent.get())
+        );
+    }
+
+    private static Duration longestGap(List<Long> processedAt, long from, long to) {
+        long gap = 0;
+        long previous = from;
+        for (var at : processedAt) {
+            if (at > from && at <= to) {
+                gap = Math.max(gap, at - previous);
+                previous = at;
+            }
+        }
+        return Duration.ofNanos(Math.max(gap, to - previous));
+    }
+
+    private double partitions(String type) {
+        return meterRegistry.find("kafka.consumer.rebalance.partitions").tag("listener", "order").tag("type", type)
+            .counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+}
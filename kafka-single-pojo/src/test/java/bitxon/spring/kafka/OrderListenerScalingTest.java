@@ -0,0 +1,69 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.OrderListener;
+import bitxon.spring.kafka.model.Order;
+import bitxon.spring.kafka.utils.ConcurrencyScaler;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.lag.poll-interval=500ms",
+    "custom.order.concurrency=1",
+    "custom.order.workers=1",
+    "custom.order.scaling.enabled=true",
+    "custom.order.scaling.max-workers=4",
+    "custom.order.scaling.target-drain-time=2s",
+    "custom.order.scaling.interval=1s",
+    "custom.order.scaling.up-intervals=1",
+    "custom.order.scaling.cooldown=1s"
+})
+class OrderListenerScalingTest {
+    public static final Duration TIMEOUT = Duration.ofMillis(30_000);
+
+    @Qualifier("orderKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    OrderListener orderListener;
+    @Autowired
+    ConcurrencyScaler orderScaler;
+
+    @BeforeEach
+    void beforeEach() {
+        orderListener.getAttempt().set(0);
+        orderListener.getRepository().clear();
+    }
+
+    @Test
+    void workersAreAddedWhileBehind() {
+        for (int i = 0; i < 12; i++) {
+            kafkaWriter.send("key" + i, new Order("Product" + i, 1)); // 2 sec each, 24 sec with one worker
+        }
+
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(orderScaler.getWorkers()).as("Workers")
+                .isGreaterThan(1);
+            assertThat(orderListener.getRepository()).as("Number entities processed")
+                .hasSize(12);
+        });
+        assertThat(orderScaler.getConcurrency()).as("Consumers, topic has one partition")
+            .isEqualTo(1);
+    }
+}
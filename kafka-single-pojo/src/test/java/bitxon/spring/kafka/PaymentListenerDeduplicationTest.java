@@ -0,0 +1,85 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.dedup.DeduplicationFilter;
+import bitxon.spring.kafka.listener.PaymentListener;
+import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "custom.dedup.key=content"
+})
+class PaymentListenerDeduplicationTest {
+    public static final Duration DELAY = Duration.ofMillis(1_000);
+    public static final Duration TIMEOUT = Duration.ofMillis(3_000);
+
+    @Qualifier("paymentKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    PaymentListener paymentListener;
+    @Autowired
+    DeduplicationFilter<Object, Object> deduplicationFilter;
+
+    @BeforeEach
+    void beforeEach() {
+        paymentListener.getAttempt().set(0);
+        paymentListener.getRepository().clear();
+    }
+
+    @Test
+    void duplicateIsDropped() {
+        kafkaWriter.send("key-1", new Payment("Msg duplicate", 100));
+        kafkaWriter.send("key-1", new Payment("Msg duplicate", 100));
+
+        await().pollDelay(DELAY).untilAsserted(() ->
+            verify(1, 1)
+        );
+        assertThat(deduplicationFilter.getHitRatio()).as("Hit ratio")
+            .isPositive();
+    }
+
+    @Test
+    void sameContentWithOtherKeyIsProcessed() {
+        kafkaWriter.send("key-1", new Payment("Msg keys", 100));
+        kafkaWriter.send("key-2", new Payment("Msg keys", 100));
+
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            verify(2, 2)
+        );
+    }
+
+    @Test
+    void failedIsNotRemembered() {
+        kafkaWriter.send("key-1", new Payment(FAIL_RETRY, 100));
+
+        await().pollDelay(DELAY).untilAsserted(() ->
+            verify(6, 0) // every retry reaches the listener
+        );
+    }
+
+    private void verify(int expectedAttempts, int expectedResultRecords) {
+        assertThat(paymentListener.getAttempt().get()).as("Number of attempts")
+            .isEqualTo(expectedAttempts);
+        assertThat(paymentListener.getRepository()).as("Number entities processed")
+            .hasSize(expectedResultRecords);
+    }
+}
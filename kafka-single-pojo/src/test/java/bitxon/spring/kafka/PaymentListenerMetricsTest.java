@@ -0,0 +1,110 @@
+package bitxon.spring.kafka;
+
+import bitxon.spring.kafka.config.TestContainersConfig;
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.PaymentListener;
+import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@Import({
+    TestContainersConfig.class,
+    TestUtilsConfig.class
+})
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class PaymentListenerMetricsTest {
+    public static final Duration DELAY = Duration.ofMillis(1_000);
+    public static final Duration TIMEOUT = Duration.ofMillis(3_000);
+
+    @Qualifier("paymentKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    PaymentListener paymentListener;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void beforeEach() {
+        paymentListener.getAttempt().set(0);
+        paymentListener.getRepository().clear();
+    }
+
+    @Test
+    void successIsTimed() {
+        var handled = timerCount("kafka.listener.handle", "result", "success");
+        var latency = timerCount("kafka.listener.latency");
+        var validated = timerCount("kafka.listener.validate");
+        var deserialized = timerCount("kafka.consumer.deserialize");
+
+        kafkaWriter.send(new Payment("Msg metrics", 100));
+
+        await().atMost(TIMEOUT).untilAsserted(() -> {
+            assertThat(timerCount("kafka.listener.handle", "result", "success")).as("Handled")
+                .isEqualTo(handled + 1);
+            assertThat(timerCount("kafka.listener.latency")).as("End-to-end latency")
+                .isEqualTo(latency + 1);
+            assertThat(timerCount("kafka.listener.validate")).as("Validated")
+                .isEqualTo(validated + 1);
+            assertThat(timerCount("kafka.consumer.deserialize")).as("Deserialized")
+                .isGreaterThan(deserialized);
+        });
+    }
+
+    @Test
+    void retriesAndRecoveryAreCounted() {
+        var retries = count("kafka.listener.retries");
+        var errors = count("kafka.listener.errors");
+        var recovered = count("kafka.listener.recovered", "recoverer", "log");
+
+        kafkaWriter.send(new Payment(FAIL_RETRY, 100));
+
+        await().pollDelay(DELAY).untilAsserted(() -> {
+            assertThat(count("kafka.listener.retries")).as("Retries")
+                .isEqualTo(retries + 5);
+            assertThat(count("kafka.listener.errors")).as("Failed deliveries")
+                .isEqualTo(errors + 6);
+            assertThat(count("kafka.listener.recovered", "recoverer", "log")).as("Recovered")
+                .isEqualTo(recovered + 1);
+        });
+    }
+
+    @Test
+    void conversionFailureIsCounted() {
+        var failures = count("kafka.listener.conversion.failures");
+
+        kafkaWriter.send("{\"invalid-json {");
+
+        await().atMost(TIMEOUT).untilAsserted(() ->
+            assertThat(count("kafka.listener.conversion.failures")).as("Conversion failures")
+                .isEqualTo(failures + 1)
+        );
+    }
+
+    private long timerCount(String name, String... tags) {
+        return meterRegistry.find(name).tag("topic", "payment").tags(tags).timers().stream()
+            .mapToLong(Timer::count)
+            .sum();
+    }
+
+    private double count(String name, String... tags) {
+        return meterRegistry.find(name).tag("topic", "payment").tags(tags).counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+}
@@ -0,0 +1,173 @@
+package bitxon.spring.kafka.benchmark;
+
+import bitxon.spring.kafka.config.KafkaExecutorConfig;
+import bitxon.spring.kafka.config.KafkaOrderConfig;
+import bitxon.spring.kafka.utils.KeyOrderedExecutor;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares records/s and OS thread count of blocking handlers run by a listener container on embedded broker,
+ * wired as {@code order} listener ({@link KafkaExecutorConfig}, {@link KafkaOrderConfig}):
+ * <ul>
+ *     <li>container - 3 consumer threads, one record at a time ({@code workers: 0})</li>
+ *     <li>platform - 3 consumer threads dispatch records to a pool of platform workers, one per in-flight record</li>
+ *     <li>virtual - virtual consumer threads dispatch records to virtual workers, one per in-flight record</li>
+ * </ul>
+ * Records are produced before the container starts, so all of them are in flight from the start.
+ * Run with {@code ./gradlew kafka-single-pojo:benchmark}
+ */
+@Tag("benchmark")
+@EmbeddedKafka
+class ExecutionModeBenchmark {
+    private static final Duration BLOCKING = Duration.ofMillis(50);
+    private static final Duration TIME_LIMIT = Duration.ofSeconds(20);
+    private static final int PARTITIONS = 3;
+    private static final int CONTAINER_CONCURRENCY = 3;
+    private static final int WORKERS = 100_000;
+    private static final int PLATFORM_WORKERS = 1_000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    void container(int records, EmbeddedKafkaBroker broker) throws Exception {
+        report("container", records, run(broker, "container", records, "platform", 0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    void platform(int records, EmbeddedKafkaBroker broker) throws Exception {
+        report("platform", records, run(broker, "platform", records, "platform", PLATFORM_WORKERS));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    void virtual(int records, EmbeddedKafkaBroker broker) throws Exception {
+        report("virtual", records, run(broker, "virtual", records, "virtual", WORKERS));
+    }
+
+    private static Result run(EmbeddedKafkaBroker broker, String mode, int records,
+                              String threads, int workers) throws Exception {
+        var topic = "benchmark-" + mode + "-" + records;
+        broker.addTopics(new NewTopic(topic, PARTITIONS, (short) 1));
+        produce(broker, topic, records);
+
+        var orderTaskExecutor = new KafkaOrderConfig().orderTaskExecutor(workers, threads);
+        if (orderTaskExecutor instanceof ThreadPoolTaskExecutor pool) {
+            pool.initialize(); // done by the context for the bean
+        }
+        var keyOrderedExecutor = new KeyOrderedExecutor(orderTaskExecutor);
+        var completed = new AtomicInteger();
+        var container = container(broker, topic, threads, (rec, acknowledgment) ->
+            keyOrderedExecutor.execute(rec.key(), () -> {
+                block();
+                completed.incrementAndGet();
+            }).whenComplete((__, exception) -> acknowledgment.acknowledge())
+        );
+
+        var threadBean = ManagementFactory.getThreadMXBean();
+        var maxThreads = new AtomicInteger(threadBean.getThreadCount());
+        var sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> maxThreads.accumulateAndGet(threadBean.getThreadCount(), Math::max),
+            0, 10, TimeUnit.MILLISECONDS);
+
+        var start = System.nanoTime();
+        container.start();
+        var deadline = start + TIME_LIMIT.toNanos();
+        while (completed.get() < records && System.nanoTime() < deadline) { // slow modes are measured by what they complete
+            Thread.sleep(10);
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        var result = new Result(completed.get(), elapsed, maxThreads.get());
+
+        sampler.shutdownNow();
+        container.stop();
+        shutdown(orderTaskExecutor);
+        return result;
+    }
+
+    private static void produce(EmbeddedKafkaBroker broker, String topic, int records) {
+        var producerFactory = new DefaultKafkaProducerFactory<String, String>(Map.of(
+            ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+            ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+            ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+            ProducerConfig.LINGER_MS_CONFIG, 5
+        ));
+        var template = new KafkaTemplate<>(producerFactory);
+        for (int i = 0; i < records; i++) {
+            template.send(topic, "key-" + i, "order-" + i);
+        }
+        template.flush();
+        producerFactory.destroy();
+    }
+
+    /**
+     * Same properties as {@code orderKafkaListenerContainerFactory}
+     */
+    private static ConcurrentMessageListenerContainer<String, String> container(
+        EmbeddedKafkaBroker broker, String topic, String threads,
+        AcknowledgingMessageListener<String, String> listener
+    ) {
+        var consumerFactory = new DefaultKafkaConsumerFactory<String, String>(Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+            ConsumerConfig.GROUP_ID_CONFIG, topic,
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+            ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class
+        ));
+        var properties = new ContainerProperties(topic);
+        properties.setAckMode(AckMode.MANUAL);
+        properties.setAsyncAcks(true);
+        properties.setListenerTaskExecutor(new KafkaExecutorConfig().listenerTaskExecutor(threads));
+        properties.setMessageListener(listener);
+        var container = new ConcurrentMessageListenerContainer<>(consumerFactory, properties);
+        container.setConcurrency(CONTAINER_CONCURRENCY);
+        return container;
+    }
+
+    private static void block() {
+        try {
+            Thread.sleep(BLOCKING);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void shutdown(TaskExecutor executor) throws Exception {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static void report(String mode, int records, Result result) {
+        System.out.printf("%-9s | in-flight %,7d | completed %,7d | %,10.0f records/s | max OS threads %,5d%n",
+            mode, records, result.completed(), result.completed() * 1000.0 / result.elapsed().toMillis(), result.maxThreads());
+    }
+
+    private record Result(int completed, Duration elapsed, int maxThreads) {}
+}
@@ -0,0 +1,51 @@
+package bitxon.spring.kafka.load;
+
+import bitxon.spring.kafka.config.TestUtilsConfig;
+import bitxon.spring.kafka.listener.PaymentListener;
+import bitxon.spring.kafka.model.Payment;
+import bitxon.spring.kafka.utils.KafkaWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import static bitxon.spring.kafka.exception.ErrorType.FAIL;
+import static bitxon.spring.kafka.exception.ErrorType.FAIL_RETRY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Run with {@code ./gradlew kafka-single-pojo:load -Pload.rate=5000 -Pload.fail=0.01}
+ */
+@Tag("load")
+@Import(TestUtilsConfig.class)
+@EmbeddedKafka(topics = {"payment", "order"}, partitions = 3)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+class PaymentListenerLoadTest {
+
+    @Qualifier("paymentKafkaWriter")
+    @Autowired
+    KafkaWriter kafkaWriter;
+    @Autowired
+    PaymentListener paymentListener;
+
+    @Test
+    void payment() {
+        var harness = new LoadHarness(LoadProfile.fromSystemProperties(), FAIL, FAIL_RETRY);
+
+        var report = harness.run("payment",
+            (key, message) -> kafkaWriter.send(key, new Payment(message, 100)),
+            () -> {
+                var payment = paymentListener.getRepository().poll();
+                return payment == null ? null : payment.message();
+            }
+        ).print(System.out);
+
+        assertThat(report.completed()).isEqualTo(report.expected());
+    }
+}
@@ -0,0 +1,275 @@
+package bitxon.spring.kafka.validation.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates {@code <Record>Validator} next to every record with {@code @NotNull}, {@code @NotBlank}, {@code @Positive}
+ * or {@code @PositiveOrZero} components and lists them in {@code META-INF/services} for {@code RecordValidators}.
+ * <p>
+ * Records with any other constraint (or constraint groups/payload) are skipped with a warning,
+ * they are still validated by Hibernate Validator.
+ */
+@SupportedAnnotationTypes({
+    RecordValidatorProcessor.NOT_NULL,
+    RecordValidatorProcessor.NOT_BLANK,
+    RecordValidatorProcessor.POSITIVE,
+    RecordValidatorProcessor.POSITIVE_OR_ZERO
+})
+public class RecordValidatorProcessor extends AbstractProcessor {
+    static final String NOT_NULL = "jakarta.validation.constraints.NotNull";
+    static final String NOT_BLANK = "jakarta.validation.constraints.NotBlank";
+    static final String POSITIVE = "jakarta.validation.constraints.Positive";
+    static final String POSITIVE_OR_ZERO = "jakarta.validation.constraints.PositiveOrZero";
+
+    private static final String CONSTRAINTS_PACKAGE = "jakarta.validation.constraints.";
+    private static final String VALID = "jakarta.validation.Valid";
+    private static final String RUNTIME_PACKAGE = "bitxon.spring.kafka.validation";
+    private static final String SERVICE_FILE = "META-INF/services/" + RUNTIME_PACKAGE + ".RecordValidator";
+
+    private static final Map<String, String> DEFAULT_MESSAGES = Map.of(
+        NOT_NULL, "must not be null",
+        NOT_BLANK, "must not be blank",
+        POSITIVE, "must be greater than 0",
+        POSITIVE_OR_ZERO, "must be greater than or equal to 0"
+    );
+    private static final Set<String> NUMBER_CLASSES = Set.of(
+        "java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double"
+    );
+    private static final Set<String> BIG_NUMBER_CLASSES = Set.of("java.math.BigInteger", "java.math.BigDecimal");
+
+    private final Set<String> generated = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        Set<TypeElement> records = new LinkedHashSet<>();
+        for (var annotation : annotations) {
+            for (var element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                var type = enclosingType(element);
+                if (type != null && type.getKind() == ElementKind.RECORD) {
+                    records.add(type);
+                }
+            }
+        }
+        records.forEach(this::generate);
+        return false; // constraints are still visible to other processors
+    }
+
+    private static TypeElement enclosingType(Element element) {
+        for (var current = element; current != null; current = current.getEnclosingElement()) {
+            if (current instanceof TypeElement type) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private void generate(TypeElement record) {
+        var checks = new ArrayList<String>();
+        for (var component : record.getRecordComponents()) {
+            for (var constraint : constraintsOf(record, component).values()) {
+                var check = check(record, component, constraint);
+                if (check == null) {
+                    return; // already reported
+                }
+                checks.add(check);
+            }
+        }
+
+        var packageName = processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        var validatorName = validatorName(record, packageName);
+        var qualifiedName = packageName.isEmpty() ? validatorName : packageName + "." + validatorName;
+        var recordName = record.getQualifiedName().toString();
+
+        try (var out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, record).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.printf("@javax.annotation.processing.Generated(\"%s\")%n", getClass().getName());
+            out.printf("public final class %s implements %s.RecordValidator<%s> {%n%n", validatorName, RUNTIME_PACKAGE, recordName);
+            out.printf("    @Override%n");
+            out.printf("    public Class<%s> getType() {%n", recordName);
+            out.printf("        return %s.class;%n", recordName);
+            out.printf("    }%n%n");
+            out.printf("    @Override%n");
+            out.printf("    public int validate(%s value$, %s.RecordValidator.ViolationHandler violations$) {%n", recordName, RUNTIME_PACKAGE);
+            out.printf("        int count$ = 0;%n");
+            for (var component : record.getRecordComponents()) {
+                out.printf("        var %1$s = value$.%1$s();%n", component.getSimpleName());
+            }
+            checks.forEach(out::print);
+            out.printf("        return count$;%n");
+            out.printf("    }%n");
+            out.printf("}%n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can't generate " + qualifiedName + ": " + e, record);
+            return;
+        }
+        generated.add(qualifiedName);
+    }
+
+    /**
+     * Constraints of a component end up on the field, the accessor and the constructor parameter
+     * (depending on annotation targets), field and accessor are enough to find all of them
+     */
+    private Map<String, AnnotationMirror> constraintsOf(TypeElement record, RecordComponentElement component) {
+        Map<String, AnnotationMirror> constraints = new LinkedHashMap<>();
+        List<Element> holders = new ArrayList<>();
+        holders.add(component.getAccessor());
+        ElementFilter.fieldsIn(record.getEnclosedElements()).stream()
+            .filter(field -> field.getSimpleName().equals(component.getSimpleName()))
+            .forEach(holders::add);
+
+        for (var holder : holders) {
+            for (var mirror : holder.getAnnotationMirrors()) {
+                var name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+                if (name.startsWith(CONSTRAINTS_PACKAGE) || name.equals(VALID)) {
+                    constraints.putIfAbsent(name, mirror);
+                }
+            }
+        }
+        return constraints;
+    }
+
+    private String check(TypeElement record, RecordComponentElement component, AnnotationMirror constraint) {
+        var constraintName = ((TypeElement) constraint.getAnnotationType().asElement()).getQualifiedName().toString();
+        var name = component.getSimpleName().toString();
+        var type = component.asType();
+
+        if (!DEFAULT_MESSAGES.containsKey(constraintName)) {
+            return skip(record, "unsupported @%s on %s".formatted(constraintName, name));
+        }
+        var attributes = explicitAttributes(constraint);
+        if (attributes.containsKey("groups") || attributes.containsKey("payload")) {
+            return skip(record, "groups/payload of @%s on %s are not supported".formatted(constraintName, name));
+        }
+
+        var condition = switch (constraintName) {
+            case NOT_NULL -> type.getKind().isPrimitive() ? null : "%s == null".formatted(name);
+            case NOT_BLANK -> isCharSequence(type)
+                ? "!%s.Constraints.notBlank(%s)".formatted(RUNTIME_PACKAGE, name)
+                : null;
+            case POSITIVE -> numberCondition(type, name, "<= 0");
+            case POSITIVE_OR_ZERO -> numberCondition(type, name, "< 0");
+            default -> null;
+        };
+        if (condition == null) {
+            if (constraintName.equals(NOT_NULL)) {
+                return ""; // primitive is never null
+            }
+            return skip(record, "@%s is not supported for %s of type %s".formatted(constraintName, name, type));
+        }
+
+        var message = DEFAULT_MESSAGES.get(constraintName);
+        var explicitMessage = attributes.get("message");
+        if (explicitMessage != null && !explicitMessage.getValue().toString().startsWith("{")) {
+            message = explicitMessage.getValue().toString(); // interpolated messages are not supported, default is used
+        }
+        var elements = processingEnv.getElementUtils();
+        return """
+                    if (%s) {
+                        count$++;
+                        violations$.violation(%s, %s, %s, %s);
+                    }
+            """.formatted(condition,
+            elements.getConstantExpression(name),
+            elements.getConstantExpression(constraintName.substring(CONSTRAINTS_PACKAGE.length())),
+            elements.getConstantExpression(message),
+            name);
+    }
+
+    private Map<String, AnnotationValue> explicitAttributes(AnnotationMirror constraint) {
+        Map<String, AnnotationValue> attributes = new LinkedHashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : constraint.getElementValues().entrySet()) {
+            attributes.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+        }
+        return attributes;
+    }
+
+    private boolean isCharSequence(TypeMirror type) {
+        var types = processingEnv.getTypeUtils();
+        var charSequence = processingEnv.getElementUtils().getTypeElement("java.lang.CharSequence").asType();
+        return type.getKind() == TypeKind.DECLARED && types.isAssignable(type, charSequence);
+    }
+
+    /**
+     * {@code null} values are valid for {@code @Positive} and {@code @PositiveOrZero}
+     */
+    private String numberCondition(TypeMirror type, String name, String violation) {
+        switch (type.getKind()) {
+            case BYTE, SHORT, INT, LONG, FLOAT, DOUBLE -> {
+                return "%s %s".formatted(name, violation);
+            }
+            case DECLARED -> {
+                var className = processingEnv.getTypeUtils().erasure(type).toString();
+                if (NUMBER_CLASSES.contains(className)) {
+                    return "%1$s != null && %1$s %2$s".formatted(name, violation);
+                }
+                if (BIG_NUMBER_CLASSES.contains(className)) {
+                    return "%1$s != null && %1$s.signum() %2$s".formatted(name, violation);
+                }
+                return null;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private String skip(TypeElement record, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+            "Validator is not generated for %s: %s".formatted(record.getQualifiedName(), reason), record);
+        return null;
+    }
+
+    private static String validatorName(TypeElement record, String packageName) {
+        var binaryName = record.getQualifiedName().toString();
+        var simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        return simpleName.replace('.', '_') + "Validator";
+    }
+
+    private void writeServiceFile() {
+        if (generated.isEmpty()) {
+            return;
+        }
+        try (var out = new PrintWriter(processingEnv.getFiler()
+            .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter())) {
+            generated.forEach(out::println);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can't write " + SERVICE_FILE + ": " + e);
+        }
+    }
+}